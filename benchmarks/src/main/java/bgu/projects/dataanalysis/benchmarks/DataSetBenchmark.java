@@ -0,0 +1,52 @@
+package bgu.projects.dataanalysis.benchmarks;
+
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.DataSet;
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+import bgu.projects.dataanalysis.learntree.api.DataSetImpl;
+import bgu.projects.dataanalysis.learntree.api.Tuple2;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of creating a data set, counting its labels and splitting it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataSetBenchmark {
+
+    @Param({"10000", "60000"})
+    public int numOfEntries;
+
+    private List<DataSetEntry<MNISTImage>> entries;
+    private DataSet<MNISTImage> dataSet;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        entries = SyntheticMNIST.generate(numOfEntries, 1);
+        dataSet = new DataSetImpl<>(entries);
+    }
+
+    @Benchmark
+    public DataSet<MNISTImage> construct() {
+        return new DataSetImpl<>(entries);
+    }
+
+    @Benchmark
+    public Map<String, Long> getLabelCounts() {
+        return dataSet.getLabelCounts();
+    }
+
+    @Benchmark
+    public Tuple2<DataSet<MNISTImage>, DataSet<MNISTImage>> splitByPercentage() {
+        return dataSet.splitByPercentage(20, seed++);
+    }
+}
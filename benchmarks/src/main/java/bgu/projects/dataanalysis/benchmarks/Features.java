@@ -0,0 +1,34 @@
+package bgu.projects.dataanalysis.benchmarks;
+
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.ThresholdFeature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Utility class for the feature sets the trees of the learntree application are trained with
+ */
+public class Features {
+
+    private Features() {
+    }
+
+    /**
+     * Function to return the features of a version of the learntree application
+     * @param version - 1 for a single threshold of every pixel, 2 for every gray level threshold of every pixel
+     * @return list of the features
+     */
+    public static List<Predicate<MNISTImage>> ofVersion(int version) {
+        List<Predicate<MNISTImage>> features = new ArrayList<>();
+        for (int i = 0; i < MNISTImage.SIZE; i++) {
+            if (version == 1)
+                features.add(new ThresholdFeature<>(i, 128));
+            else
+                for (int threshold = 0; threshold < 255; threshold++)
+                    features.add(new ThresholdFeature<>(i, threshold));
+        }
+        return features;
+    }
+}
@@ -0,0 +1,39 @@
+package bgu.projects.dataanalysis.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * main class for running the benchmarks
+ * Accepts the command line options of JMH, and always adds the GC profiler,
+ * so the allocation rate of every benchmark is reported alongside its time
+ */
+public class Main {
+
+    /**
+     * main method to run the benchmarks
+     * @param args - JMH command line options, e.g. a regular expression of the benchmarks to run
+     */
+    public static void main(String[] args) throws RunnerException, IOException {
+        try {
+            CommandLineOptions commandLine = new CommandLineOptions(args);
+            if (commandLine.shouldHelp()) {
+                commandLine.showHelp();
+                return;
+            }
+            new Runner(new OptionsBuilder()
+                    .parent(commandLine)
+                    .addProfiler(GCProfiler.class)
+                    .build()).run();
+        } catch (CommandLineOptionException e) {
+            System.err.println("Invalid benchmark options: " + e.getMessage());
+            System.exit(-1);
+        }
+    }
+}
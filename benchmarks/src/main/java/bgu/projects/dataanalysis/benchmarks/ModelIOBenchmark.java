@@ -0,0 +1,57 @@
+package bgu.projects.dataanalysis.benchmarks;
+
+import bgu.projects.dataanalysis.common.DecisionTreeFileReaderWriter;
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.DataSetImpl;
+import bgu.projects.dataanalysis.learntree.api.DecisionTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of writing a trained tree to a file and reading it back
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelIOBenchmark {
+
+    @Param({"64", "1024"})
+    public int treeSize;
+
+    private DecisionTree<MNISTImage> tree;
+    private Path writtenFile;
+    private Path readFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        tree = DecisionTree.buildTree(Features.ofVersion(2),
+                new DataSetImpl<>(SyntheticMNIST.generate(10000, 1)), new int[] {treeSize}).get(0);
+        writtenFile = Files.createTempFile("benchmark", ".tree");
+        readFile = Files.createTempFile("benchmark", ".tree");
+        DecisionTreeFileReaderWriter.write(readFile.toString(), tree);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(writtenFile);
+        Files.deleteIfExists(readFile);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        // a fresh tree view, so the compiled form cached by the previous call is not reused
+        DecisionTreeFileReaderWriter.write(writtenFile.toString(), tree.snapshot(treeSize));
+    }
+
+    @Benchmark
+    public DecisionTree<MNISTImage> read() throws IOException, ClassNotFoundException {
+        return DecisionTreeFileReaderWriter.read(readFile.toString());
+    }
+}
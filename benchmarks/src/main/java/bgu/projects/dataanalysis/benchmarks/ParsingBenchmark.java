@@ -0,0 +1,46 @@
+package bgu.projects.dataanalysis.benchmarks;
+
+import bgu.projects.dataanalysis.common.MNISTCSVParser;
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of parsing a CSV training set file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int numOfEntries;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("benchmark", ".csv");
+        SyntheticMNIST.writeCSV(SyntheticMNIST.generate(numOfEntries, 1), file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<DataSetEntry<MNISTImage>> parseCSV() throws IOException, ParseException {
+        return MNISTCSVParser.parseCSV(file.toString());
+    }
+}
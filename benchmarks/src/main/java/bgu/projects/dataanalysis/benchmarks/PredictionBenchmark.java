@@ -0,0 +1,59 @@
+package bgu.projects.dataanalysis.benchmarks;
+
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of predicting the labels of images by a trained tree, one at a time and in a batch,
+ * by the compiled tree and by the code generated for it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredictionBenchmark {
+
+    @Param({"64", "1024"})
+    public int treeSize;
+
+    @Param({"false", "true"})
+    public boolean generateCode;
+
+    private static final int NUM_OF_IMAGES = 10000;
+
+    private DecisionTree<MNISTImage> tree;
+    private List<MNISTImage> images;
+
+    @Setup
+    public void setUp() {
+        List<DataSetEntry<MNISTImage>> entries = SyntheticMNIST.generate(NUM_OF_IMAGES, 1);
+        tree = DecisionTree.buildTree(Features.ofVersion(2), new DataSetImpl<>(entries), new int[] {treeSize})
+                .get(0);
+        if (generateCode && !tree.generateCode())
+            throw new IllegalStateException("Could not generate code for the tree");
+        images = new ArrayList<>(entries.size());
+        for (DataSetEntry<MNISTImage> entry : entries)
+            images.add(entry.getObject());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_OF_IMAGES)
+    public void predict(Blackhole blackhole) {
+        for (MNISTImage image : images)
+            blackhole.consume(tree.predict(image));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_OF_IMAGES)
+    public String[] predictAll() {
+        return tree.predictAll(images);
+    }
+}
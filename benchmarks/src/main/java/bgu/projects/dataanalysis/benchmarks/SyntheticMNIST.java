@@ -0,0 +1,77 @@
+package bgu.projects.dataanalysis.benchmarks;
+
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Utility class for generating MNIST shaped data sets, so benchmarks need no download
+ * Every label has a random prototype image of strokes on a dark background, and every image is
+ * its label's prototype with random noise, so trees trained on the data have realistic structure
+ */
+public class SyntheticMNIST {
+
+    public static final int NUM_OF_LABELS = 10;
+
+    /**
+     * Probability, in percents, that a pixel of an image differs from its prototype
+     */
+    private static final int NOISE_PERCENTAGE = 15;
+
+    private SyntheticMNIST() {
+    }
+
+    /**
+     * Function to generate a labeled data set
+     * @param count - number of entries
+     * @param seed - seed of the prototypes and the noise, equal seeds generate equal data sets
+     * @return list of entries with labels "0" to "9"
+     */
+    public static List<DataSetEntry<MNISTImage>> generate(int count, long seed) {
+        Random random = new Random(seed);
+        byte[][] prototypes = new byte[NUM_OF_LABELS][MNISTImage.SIZE];
+        for (byte[] prototype : prototypes)
+            for (int p = 0; p < MNISTImage.SIZE; p++)
+                if (random.nextInt(4) == 0)
+                    prototype[p] = (byte) (128 + random.nextInt(128));
+        List<DataSetEntry<MNISTImage>> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int label = random.nextInt(NUM_OF_LABELS);
+            byte[] pixels = prototypes[label].clone();
+            for (int p = 0; p < MNISTImage.SIZE; p++)
+                if (random.nextInt(100) < NOISE_PERCENTAGE)
+                    pixels[p] = (byte) random.nextInt(256);
+            entries.add(new DataSetEntry<>(String.valueOf(label), new MNISTImage(pixels)));
+        }
+        return entries;
+    }
+
+    /**
+     * Method to write entries to a CSV file in the format read by the CSV parser:
+     * one line per entry, of the label followed by the pixel values
+     * @param entries - the entries
+     * @param file - the output file path
+     * @throws IOException
+     */
+    public static void writeCSV(List<DataSetEntry<MNISTImage>> entries, Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            StringBuilder line = new StringBuilder();
+            for (DataSetEntry<MNISTImage> entry : entries) {
+                line.setLength(0);
+                line.append(entry.getLabel());
+                for (int p = 0; p < MNISTImage.SIZE; p++)
+                    line.append(',').append(entry.getObject().getPixel(p));
+                out.write(line.toString());
+                out.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package bgu.projects.dataanalysis.benchmarks;
+
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Benchmark of building a complete tree, on a single thread so results do not depend on the machine's cores
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class TrainingBenchmark {
+
+    @Param({"1", "2"})
+    public int version;
+
+    @Param({"16", "64", "256"})
+    public int treeSize;
+
+    @Param({"10000"})
+    public int numOfEntries;
+
+    private List<Predicate<MNISTImage>> features;
+    private DataSet<MNISTImage> dataSet;
+    private TrainingOptions options;
+
+    @Setup
+    public void setUp() {
+        features = Features.ofVersion(version);
+        dataSet = new DataSetImpl<>(SyntheticMNIST.generate(numOfEntries, 1));
+        options = TrainingOptions.defaults().withParallelism(1);
+    }
+
+    @Benchmark
+    public DecisionTree<MNISTImage> buildTree() {
+        return DecisionTree.buildTree(features, dataSet, new int[] {treeSize}, options).get(0);
+    }
+}
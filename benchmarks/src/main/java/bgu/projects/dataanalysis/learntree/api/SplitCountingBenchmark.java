@@ -0,0 +1,67 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import bgu.projects.dataanalysis.benchmarks.SyntheticMNIST;
+import bgu.projects.dataanalysis.common.MNISTImage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Benchmark of scoring every pixel threshold feature on the root leaf, by each way of counting
+ * the samples which pass a feature (see {@link ThresholdFeatureSource.Kernel})
+ * It is in the package of {@link ThresholdFeatureSource}, so it can choose the counting kernel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitCountingBenchmark {
+
+    /**
+     * Name of the kernel, the generated benchmark code is in another package and can not see the enum
+     */
+    @Param({"SCALAR", "BRANCH_FREE", "SWAR"})
+    public String kernel;
+
+    @Param({"0", "128"})
+    public int threshold;
+
+    private static final int NUM_OF_ENTRIES = 60000;
+
+    private FeatureSource.LeafCounter rootCounter;
+    private int[] trueCounts;
+
+    @Setup
+    public void setUp() {
+        DataSet<MNISTImage> dataSet = new DataSetImpl<>(SyntheticMNIST.generate(NUM_OF_ENTRIES, 1));
+        List<Predicate<MNISTImage>> features = new ArrayList<>(MNISTImage.SIZE);
+        for (int i = 0; i < MNISTImage.SIZE; i++)
+            features.add(new ThresholdFeature<>(i, threshold));
+        List<MNISTImage> objects = new ArrayList<>(dataSet.size());
+        int[] labels = new int[dataSet.size()];
+        int[] rows = new int[dataSet.size()];
+        LabelDictionary dictionary = dataSet.getLabelDictionary();
+        for (DataSetEntry<MNISTImage> entry : dataSet) {
+            rows[objects.size()] = objects.size();
+            labels[objects.size()] = dictionary.idOf(entry.getLabel());
+            objects.add(entry.getObject());
+        }
+        rootCounter = ThresholdFeatureSource.of(features, objects)
+                .withKernel(ThresholdFeatureSource.Kernel.valueOf(kernel))
+                .newLeafCounter(rows, 0, rows.length, labels, dictionary.size());
+        trueCounts = new int[dictionary.size()];
+    }
+
+    @Benchmark
+    public int scoreRootLeaf() {
+        int sum = 0;
+        for (int feature = 0; feature < MNISTImage.SIZE; feature++)
+            sum += rootCounter.countTrue(feature, trueCounts);
+        return sum;
+    }
+}
@@ -0,0 +1,53 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import bgu.projects.dataanalysis.benchmarks.Features;
+import bgu.projects.dataanalysis.benchmarks.SyntheticMNIST;
+import bgu.projects.dataanalysis.common.MNISTImage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Benchmark of a single training step: finding the best split of the root leaf
+ * It is in the package of {@link TreeBuilder}, so the features are prepared once, and the training run
+ * and its root leaf are prepared before every step, so only the split search is measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitSearchBenchmark {
+
+    @Param({"1", "2"})
+    public int version;
+
+    @Param({"10000", "60000"})
+    public int numOfEntries;
+
+    private Tuple3<FeatureSource<MNISTImage>, int[], int[]> source;
+    private String[] labelNames;
+    private TrainingOptions options;
+    private DoubleSupplier search;
+
+    @Setup
+    public void setUp() {
+        DataSet<MNISTImage> dataSet = new DataSetImpl<>(SyntheticMNIST.generate(numOfEntries, 1));
+        source = TreeBuilder.sourceOf(Features.ofVersion(version), dataSet);
+        labelNames = dataSet.getLabelDictionary().getNames();
+        options = TrainingOptions.defaults().withParallelism(1);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpSearch() {
+        search = new TreeBuilder<>(source.getT1(), source.getT2().clone(), source.getT3(), labelNames, options)
+                .rootSplitSearch();
+    }
+
+    @Benchmark
+    public double maxInformationGain() {
+        return search.getAsDouble();
+    }
+}
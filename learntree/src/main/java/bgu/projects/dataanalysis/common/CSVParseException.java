@@ -0,0 +1,23 @@
+package bgu.projects.dataanalysis.common;
+
+import lombok.Getter;
+
+import java.text.ParseException;
+
+/**
+ * Exception thrown when a line of a CSV file could not be parsed
+ * The error offset of this exception is the column (0-based byte offset) within the failing line
+ */
+@Getter
+public class CSVParseException extends ParseException {
+
+    /**
+     * The 1-based number of the failing line
+     */
+    private final long lineNumber;
+
+    public CSVParseException(String message, long lineNumber, int column) {
+        super("line " + lineNumber + ", column " + column + ": " + message, column);
+        this.lineNumber = lineNumber;
+    }
+}
@@ -0,0 +1,38 @@
+package bgu.projects.dataanalysis.common;
+
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interface to read a data set file as a sequence of chunks, in file order,
+ * so the memory used depends on the chunk size and not on the file size
+ */
+public interface DataSetChunkReader extends Closeable {
+
+    /**
+     * Method to read the next chunk of entries
+     * @return the entries of the next chunk, or null if the whole file was read
+     * @throws IOException
+     * @throws ParseException
+     */
+    List<DataSetEntry<MNISTImage>> nextChunk() throws IOException, ParseException;
+
+    /**
+     * Method to read all the remaining entries
+     * @return list of the remaining entries
+     * @throws IOException
+     * @throws ParseException
+     */
+    default List<DataSetEntry<MNISTImage>> readAll() throws IOException, ParseException {
+        List<DataSetEntry<MNISTImage>> dataSet = new ArrayList<>();
+        List<DataSetEntry<MNISTImage>> chunk;
+        while ((chunk = nextChunk()) != null)
+            dataSet.addAll(chunk);
+        return dataSet;
+    }
+}
@@ -1,14 +1,46 @@
 package bgu.projects.dataanalysis.common;
 
-import bgu.projects.dataanalysis.learntree.api.DecisionTree;
+import bgu.projects.dataanalysis.common.legacy.LegacyModelInputStream;
+import bgu.projects.dataanalysis.learntree.api.*;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
- * Utility class for reading/writing {@link DecisionTree} from/to file
+ * Utility class for reading/writing {@link DecisionTree} and {@link RandomForest} models from/to file
+ * Trees which can be compiled (see {@link DecisionTree#compile()}) are written in a compact binary format:
+ * a header (magic number and format version), a label dictionary, the tree's node arrays and the label counts
+ * of its nodes, which {@link DecisionTree#update} continues from
+ * Forests of such trees are written as a header, the forest's label dictionary and the trees one after the other
+ * Other models, whose features are arbitrary predicates, are written by Java serialization, and are read
+ * by {@link LegacyModelInputStream}, which also reads the tree files of the first version of the project
  */
 public class DecisionTreeFileReaderWriter {
 
+    public static final int MAGIC = 0x44545245; // "DTRE"
+    public static final int VERSION = 3;
+    public static final int FOREST_MAGIC = 0x44464F52; // "DFOR"
+    public static final int FOREST_VERSION = 2;
+    /**
+     * Version 1 files do not hold the growth order of the feature nodes
+     */
+    private static final int VERSION_WITHOUT_ORDERS = 1;
+    /**
+     * Version 2 tree files and version 1 forest files do not hold the label counts of the nodes
+     */
+    private static final int VERSION_WITHOUT_COUNTS = 2;
+    private static final int FOREST_VERSION_WITHOUT_COUNTS = 1;
+    private static final short SERIALIZATION_MAGIC = (short)0xACED;
+    private static final int TIMED_READS = 5;
+
     /**
      * Function to write a given {@link DecisionTree} to a file
      * @param outputFilename - the output file path
@@ -17,9 +49,54 @@ public class DecisionTreeFileReaderWriter {
      * @throws IOException
      */
     public static <T> void write(String outputFilename, DecisionTree<T> tree) throws IOException{
-        try(FileOutputStream outStream = new FileOutputStream(outputFilename);
-                ObjectOutputStream objectStream = new ObjectOutputStream(outStream)) {
-            objectStream.writeObject(tree);
+        CompiledDecisionTree<T> compiled = tree.compile();
+        if (compiled == null) {
+            try(FileOutputStream outStream = new FileOutputStream(outputFilename);
+                    ObjectOutputStream objectStream = new ObjectOutputStream(outStream)) {
+                objectStream.writeObject(tree);
+            }
+            return;
+        }
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(outputFilename), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            compiled.writeTo(out);
+        }
+    }
+
+    /**
+     * Function to write a given {@link RandomForest} to a file
+     * @param outputFilename - the output file path
+     * @param forest - the forest to export
+     * @param <T> - the class type
+     * @throws IOException
+     */
+    public static <T> void write(String outputFilename, RandomForest<T> forest) throws IOException{
+        List<CompiledDecisionTree<T>> compiledTrees = new ArrayList<>(forest.getTrees().size());
+        for (DecisionTree<T> tree : forest.getTrees())
+            compiledTrees.add(tree.compile());
+        if (compiledTrees.contains(null)) {
+            try(FileOutputStream outStream = new FileOutputStream(outputFilename);
+                    ObjectOutputStream objectStream = new ObjectOutputStream(outStream)) {
+                objectStream.writeObject(forest);
+            }
+            return;
+        }
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(outputFilename), 1 << 16))) {
+            out.writeInt(FOREST_MAGIC);
+            out.writeInt(FOREST_VERSION);
+            LabelDictionary dictionary = forest.getLabelDictionary();
+            out.writeInt(dictionary.size());
+            for (int l = 0; l < dictionary.size(); l++) {
+                byte[] bytes = dictionary.nameOf(l).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(compiledTrees.size());
+            for (CompiledDecisionTree<T> compiled : compiledTrees)
+                compiled.writeTo(out);
         }
     }
 
@@ -28,13 +105,111 @@ public class DecisionTreeFileReaderWriter {
      * @param inputFilename - the input file path
      * @param <T> - the class type
      * @return {@link DecisionTree} written in the file
-     * @throws IOException
+     * @throws IOException if the file does not hold a tree
      * @throws ClassNotFoundException
      */
     public static <T> DecisionTree<T> read(String inputFilename) throws IOException, ClassNotFoundException{
-        try(FileInputStream inStream = new FileInputStream(inputFilename);
-            ObjectInputStream objectStream = new ObjectInputStream(inStream)) {
-            return (DecisionTree<T>)objectStream.readObject();
+        Classifier<T> model = readModel(inputFilename);
+        if (!(model instanceof DecisionTree))
+            throw new IOException("'" + inputFilename + "' is not a decision tree file");
+        return (DecisionTree<T>) model;
+    }
+
+    /**
+     * Function to read a model, a {@link DecisionTree} or a {@link RandomForest}, from a given file
+     * Binary files are read with a single memory mapping and without reflection
+     * @param inputFilename - the input file path
+     * @param <T> - the class type
+     * @return the model written in the file
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static <T> Classifier<T> readModel(String inputFilename) throws IOException, ClassNotFoundException{
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilename), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() >= 2 && buffer.getShort(0) == SERIALIZATION_MAGIC) {
+            try(FileInputStream inStream = new FileInputStream(inputFilename);
+                ObjectInputStream objectStream = new LegacyModelInputStream(inStream)) {
+                Object model = objectStream.readObject();
+                if (!(model instanceof Classifier))
+                    throw new IOException("'" + inputFilename + "' is not a model file");
+                // the type parameter is not written, a model is returned for the type the caller reads it as,
+                // like a model read from a binary file
+                @SuppressWarnings("unchecked")
+                Classifier<T> classifier = (Classifier<T>) model;
+                return classifier;
+            }
+        }
+        int magic = buffer.remaining() < 8 ? 0 : buffer.getInt();
+        if (magic == FOREST_MAGIC)
+            return readForest(buffer, inputFilename);
+        if (magic != MAGIC)
+            throw new IOException("'" + inputFilename + "' is not a model file");
+        int version = buffer.getInt();
+        if (version != VERSION && version != VERSION_WITHOUT_COUNTS && version != VERSION_WITHOUT_ORDERS)
+            throw new IOException("Unsupported decision tree file version");
+        try {
+            return CompiledDecisionTree.<T>readFrom(buffer, version != VERSION_WITHOUT_ORDERS, version == VERSION)
+                    .toDecisionTree();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Illegal decision tree file '" + inputFilename + "'", e);
+        }
+    }
+
+    private static <T> RandomForest<T> readForest(ByteBuffer buffer, String inputFilename) throws IOException {
+        int version = buffer.getInt();
+        if (version != FOREST_VERSION && version != FOREST_VERSION_WITHOUT_COUNTS)
+            throw new IOException("Unsupported random forest file version");
+        try {
+            String[] labelNames = new String[buffer.getInt()];
+            for (int l = 0; l < labelNames.length; l++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                labelNames[l] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int numOfTrees = buffer.getInt();
+            if (numOfTrees <= 0 || numOfTrees > buffer.remaining())
+                throw new IllegalArgumentException("RandomForest: illegal number of trees");
+            List<DecisionTree<T>> trees = new ArrayList<>(numOfTrees);
+            for (int t = 0; t < numOfTrees; t++)
+                trees.add(CompiledDecisionTree.<T>readFrom(buffer, true, version == FOREST_VERSION).toDecisionTree());
+            return RandomForest.of(trees, LabelDictionary.of(Arrays.asList(labelNames)));
+        } catch (IllegalArgumentException | BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Illegal random forest file '" + inputFilename + "'", e);
+        }
+    }
+
+    /**
+     * Main method to convert a tree file written by Java serialization, by this version or by the first version
+     * of the project, to the binary format
+     * Prints the size and the read time (the best of a few reads) of both files
+     * @param args - input file path and output file path
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        if (args.length != 2) {
+            System.err.println("usage: DecisionTreeFileReaderWriter <input_filename> <output_filename>");
+            System.exit(-1);
+        }
+        DecisionTree<Object> tree = read(args[0]);
+        if (tree.compile() == null) {
+            System.err.println("The tree has features which can not be written in binary format");
+            System.exit(-1);
+        }
+        write(args[1], tree);
+        for (String filename : args)
+            System.out.printf("%s: %d bytes, read in %.2f ms%n", filename, new File(filename).length(),
+                    bestReadNanos(filename) / 1e6);
+    }
+
+    private static long bestReadNanos(String filename) throws IOException, ClassNotFoundException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < TIMED_READS; i++) {
+            long start = System.nanoTime();
+            readModel(filename);
+            best = Math.min(best, System.nanoTime() - start);
         }
+        return best;
     }
 }
@@ -0,0 +1,130 @@
+package bgu.projects.dataanalysis.common;
+
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Utility class for reading/writing MNIST data sets from/to a compact binary file
+ * The file holds a header, a dictionary of the labels, one label id byte per image
+ * and the images' pixels in row-major order
+ */
+public class MNISTBinaryReaderWriter {
+
+    public static final int MAGIC = 0x4D4E5354; // "MNST"
+    public static final int VERSION = 1;
+
+    /**
+     * Maximal size in bytes of the header and label dictionary
+     */
+    private static final int MAX_HEADER_SIZE = 1 << 20;
+
+    /**
+     * Function to write a data set to a file
+     * @param outputFilename - the output file path
+     * @param dataSet - the data set entries to write
+     * @throws IOException
+     */
+    public static void write(String outputFilename, Collection<DataSetEntry<MNISTImage>> dataSet) throws IOException {
+        String[] labelNames = dataSet.stream().map(DataSetEntry::getLabel).distinct().sorted().toArray(String[]::new);
+        if (labelNames.length > 256)
+            throw new IllegalArgumentException("MNISTBinaryReaderWriter: too many labels");
+        Map<String, Integer> labelIds = new HashMap<>();
+        for (int i = 0; i < labelNames.length; i++)
+            labelIds.put(labelNames[i], i);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(outputFilename), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dataSet.size());
+            out.writeInt(MNISTImage.ROWS);
+            out.writeInt(MNISTImage.COLUMNS);
+            out.writeInt(labelNames.length);
+            for (String label : labelNames) {
+                byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (DataSetEntry<MNISTImage> entry : dataSet)
+                out.writeByte(labelIds.get(entry.getLabel()));
+            for (DataSetEntry<MNISTImage> entry : dataSet)
+                entry.getObject().writeTo(out);
+        }
+    }
+
+    /**
+     * Function to read a data set from a file
+     * The file is memory mapped and its pixels are transferred in bulk into shared pixel arrays
+     * @param inputFilename - the input file path
+     * @return a list of MNIST data set entries
+     * @throws IOException
+     * @throws ParseException if the file is not a valid data set file
+     */
+    public static List<DataSetEntry<MNISTImage>> read(String inputFilename) throws IOException, ParseException {
+        try (DataSetChunkReader reader = open(inputFilename, Integer.MAX_VALUE)) {
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * Function to open a data set file for reading in chunks
+     * @param inputFilename - the input file path
+     * @param chunkSize - maximal number of entries per chunk
+     * @return reader of the data set
+     * @throws IOException
+     * @throws ParseException if the file is not a valid data set file
+     */
+    public static DataSetChunkReader open(String inputFilename, int chunkSize) throws IOException, ParseException {
+        FileChannel channel = FileChannel.open(Paths.get(inputFilename), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate((int)Math.min(MAX_HEADER_SIZE, channel.size()));
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 24 || header.getInt() != MAGIC)
+                throw new ParseException("Not an MNIST data set file", 0);
+            if (header.getInt() != VERSION)
+                throw new ParseException("Unsupported MNIST data set file version", 4);
+            int count = header.getInt();
+            if (header.getInt() != MNISTImage.ROWS || header.getInt() != MNISTImage.COLUMNS)
+                throw new ParseException("Illegal image size", 12);
+            String[] labelNames = new String[header.getInt()];
+            for (int i = 0; i < labelNames.length; i++) {
+                byte[] bytes = new byte[header.getInt()];
+                header.get(bytes);
+                labelNames[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            long labelsOffset = header.position();
+            if (count < 0 || channel.size() != labelsOffset + count + (long)count*MNISTImage.SIZE)
+                throw new ParseException("Truncated MNIST data set file", header.position());
+            return new MappedImageChunkReader(channel, labelsOffset + count, channel, labelsOffset,
+                    labelNames, count, chunkSize);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            channel.close();
+            throw new ParseException("Truncated MNIST data set file", 0);
+        } catch (IOException | ParseException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Main method to convert a data set file (of any format read by {@link MNISTDataSetReader})
+     * to the compact binary format
+     * @param args - input file path and output file path
+     */
+    public static void main(String[] args) throws IOException, ParseException {
+        if (args.length != 2) {
+            System.err.println("usage: MNISTBinaryReaderWriter <input_filename> <output_filename>");
+            System.exit(-1);
+        }
+        write(args[1], MNISTDataSetReader.read(args[0]));
+    }
+}
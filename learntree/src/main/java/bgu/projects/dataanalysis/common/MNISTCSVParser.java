@@ -1,42 +1,239 @@
 package bgu.projects.dataanalysis.common;
 
 import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
-import com.google.common.primitives.UnsignedBytes;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * class to parse a CSV file of MNIST data set entries
+ * The file is memory mapped and split at line boundaries into chunks which are parsed in parallel,
+ * pixel values are decoded directly from the file's bytes into shared pixel arrays
  */
 public class MNISTCSVParser {
 
+    /**
+     * Number of images sharing a single contiguous pixel array
+     */
+    private static final int IMAGES_PER_SLAB = 1024;
+
+    /**
+     * Minimal and maximal size in bytes of a chunk parsed by a single task
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 22;
+    private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Minimal length in bytes of a line: a single character label and single digit pixels
+     */
+    private static final int MIN_LINE_LENGTH = 2*MNISTImage.SIZE + 2;
+
+    /**
+     * Labels of a single ASCII character, cached to avoid a new string per line
+     */
+    private static final String[] SINGLE_CHAR_LABELS = new String[128];
+
+    static {
+        for (int c = 0; c < SINGLE_CHAR_LABELS.length; c++)
+            SINGLE_CHAR_LABELS[c] = String.valueOf((char)c);
+    }
+
     /**
      * this method parses the CSV file
      * @return a list of MNIST data set entries
+     * @throws CSVParseException if a line is malformed, carrying the line number and column of the error
      */
     public static List<DataSetEntry<MNISTImage>> parseCSV(String filename) throws IOException, ParseException{
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = Math.min(MAX_CHUNK_SIZE,
+                    Math.max(MIN_CHUNK_SIZE, size / (4L * ForkJoinPool.getCommonPoolParallelism())));
+            if (size <= chunkSize)
+                return parseChunk(channel, 0, size);
+            List<Callable<List<DataSetEntry<MNISTImage>>>> tasks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long chunkStart = start;
+                long chunkEnd = nextLineStart(channel, Math.min(size, start + chunkSize));
+                tasks.add(() -> parseChunk(channel, chunkStart, chunkEnd));
+                start = chunkEnd;
+            }
+            List<DataSetEntry<MNISTImage>> dataSet = new ArrayList<>();
+            for (Future<List<DataSetEntry<MNISTImage>>> chunk : ForkJoinPool.commonPool().invokeAll(tasks))
+                dataSet.addAll(chunk.get());
+            return dataSet;
+        } catch (ExecutionException e) {
+            // the pool may wrap the chunk's checked exception in a RuntimeException
+            Throwable cause = e.getCause();
+            while (!(cause instanceof ParseException || cause instanceof IOException) && cause.getCause() != null)
+                cause = cause.getCause();
+            if (cause instanceof ParseException)
+                throw (ParseException)cause;
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parsing of '" + filename + "' was interrupted", e);
+        }
+    }
+
+    /**
+     * Function to open a CSV file for reading in chunks, in file order
+     * Every chunk maps and parses only its own region of the file
+     * @param filename - the input file path
+     * @param chunkSize - maximal number of entries per chunk
+     * @return reader of the file
+     * @throws IOException
+     */
+    public static DataSetChunkReader open(String filename, int chunkSize) throws IOException {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size: not a legal value");
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        long chunkBytes = Math.min(MAX_CHUNK_SIZE, (long)chunkSize * MIN_LINE_LENGTH);
+        return new DataSetChunkReader() {
+            private long start = 0;
+
+            @Override
+            public List<DataSetEntry<MNISTImage>> nextChunk() throws IOException, ParseException {
+                long size = channel.size();
+                if (start >= size)
+                    return null;
+                long end = nextLineStart(channel, Math.min(size, start + chunkBytes));
+                List<DataSetEntry<MNISTImage>> chunk = parseChunk(channel, start, end);
+                start = end;
+                return chunk;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Method to parse the lines of a region of the file
+     * @param channel - the file
+     * @param start - offset of the region's first line
+     * @param end - offset following the region's last line
+     * @return the entries of the region, in file order
+     */
+    private static List<DataSetEntry<MNISTImage>> parseChunk(FileChannel channel, long start, long end)
+            throws IOException, ParseException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int length = buffer.limit();
         List<DataSetEntry<MNISTImage>> dataSet = new ArrayList<>();
-        String line;
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            while ((line = br.readLine()) != null) {
-                // use comma as separator
-                String[] data = line.split(",");
-                if (data.length != MNISTImage.SIZE+1)
-                    throw new ParseException("The file could not be parsed", -1);
-                String label = data[0];
-                Byte[] dataByte = Arrays.stream(data)
-                        .skip(1)
-                        .map(UnsignedBytes::parseUnsignedByte)
-                        .toArray(Byte[]::new);
-                dataSet.add(new DataSetEntry<>(label, new MNISTImage(dataByte)));
+        byte[] slab = new byte[IMAGES_PER_SLAB*MNISTImage.SIZE];
+        int offset = 0;
+        int pos = 0;
+        while (pos < length) {
+            int lineStart = pos;
+            while (pos < length && buffer.get(pos) != ',' && buffer.get(pos) != '\n')
+                pos++;
+            if (pos == length || buffer.get(pos) != ',')
+                throw error(channel, start, buffer, lineStart, pos, "expected ',' after the label");
+            String label = decodeLabel(buffer, lineStart, pos);
+            pos++;
+            if (offset == slab.length) {
+                slab = new byte[IMAGES_PER_SLAB*MNISTImage.SIZE];
+                offset = 0;
+            }
+            for (int i = 0; i < MNISTImage.SIZE; i++) {
+                int tokenStart = pos;
+                int value = 0;
+                byte b;
+                while (pos < length && (b = buffer.get(pos)) >= '0' && b <= '9' && value <= 255) {
+                    value = value*10 + (b - '0');
+                    pos++;
+                }
+                if (pos == tokenStart || value > 255)
+                    throw error(channel, start, buffer, lineStart, tokenStart, "expected a pixel value between 0 and 255");
+                slab[offset+i] = (byte)value;
+                if (i < MNISTImage.SIZE-1) {
+                    if (pos == length || buffer.get(pos) != ',')
+                        throw error(channel, start, buffer, lineStart, pos, "expected " + (MNISTImage.SIZE+1) + " values");
+                    pos++;
+                }
             }
-        } catch (NumberFormatException e){
-            throw new ParseException(e.getMessage(), -1);
+            if (pos < length && buffer.get(pos) == '\r')
+                pos++;
+            if (pos < length && buffer.get(pos++) != '\n')
+                throw error(channel, start, buffer, lineStart, pos-1, "expected end of line");
+            dataSet.add(new DataSetEntry<>(label, new MNISTImage(slab, offset)));
+            offset += MNISTImage.SIZE;
         }
         return dataSet;
     }
+
+    private static String decodeLabel(ByteBuffer buffer, int from, int to) {
+        if (to - from == 1 && buffer.get(from) >= 0)
+            return SINGLE_CHAR_LABELS[buffer.get(from)];
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(from + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method to return the offset of the first line starting at or after a given offset
+     * @param channel - the file
+     * @param offset - offset to search from
+     * @return offset following the first '\n' at or after offset-1, or the file size
+     */
+    private static long nextLineStart(FileChannel channel, long offset) throws IOException {
+        long size = channel.size();
+        if (offset >= size)
+            return size;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = offset - 1;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++)
+                if (buffer.get(i) == '\n')
+                    return position + i + 1;
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Method to create the exception of a malformed line
+     * The line number is only computed here, by counting the lines preceding the chunk
+     */
+    private static CSVParseException error(FileChannel channel, long chunkStart, ByteBuffer chunk,
+                                           int lineStart, int pos, String message) throws IOException {
+        long lineNumber = 1;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = 0;
+        while (position < chunkStart) {
+            buffer.clear();
+            buffer.limit((int)Math.min(buffer.capacity(), chunkStart - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++)
+                if (buffer.get(i) == '\n')
+                    lineNumber++;
+            position += read;
+        }
+        for (int i = 0; i < lineStart; i++)
+            if (chunk.get(i) == '\n')
+                lineNumber++;
+        return new CSVParseException(message, lineNumber, pos - lineStart);
+    }
 }
@@ -0,0 +1,167 @@
+package bgu.projects.dataanalysis.common;
+
+import bgu.projects.dataanalysis.learntree.api.ByteColumnDataSet;
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+import bgu.projects.dataanalysis.learntree.api.LabelDictionary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Utility class for reading/writing MNIST data sets from/to a columnar binary file,
+ * for data sets which do not fit in the heap
+ * The file holds a header, a dictionary of the labels, a column of one label id byte per image
+ * and one column per pixel, holding that pixel of every image
+ * Reading memory maps the columns as a {@link ByteColumnDataSet}, and writing streams the input in chunks,
+ * so neither holds the data set on the heap
+ */
+public class MNISTColumnarReaderWriter {
+
+    public static final int MAGIC = 0x4D4E5343; // "MNSC"
+    public static final int VERSION = 1;
+
+    /**
+     * Maximal size in bytes of the header and label dictionary
+     */
+    private static final int MAX_HEADER_SIZE = 1 << 20;
+
+    /**
+     * Number of images written together
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Function to convert a data set file (of any format read by {@link MNISTDataSetReader}) to a columnar file
+     * The input is read twice: once to count the images and collect the labels, and once to write them
+     * @param inputFilename - the input file path
+     * @param outputFilename - the output file path
+     * @throws IOException
+     * @throws ParseException
+     */
+    public static void write(String inputFilename, String outputFilename) throws IOException, ParseException {
+        long count = 0;
+        Set<String> labels = new HashSet<>();
+        try (DataSetChunkReader reader = MNISTDataSetReader.open(inputFilename, CHUNK_SIZE)) {
+            List<DataSetEntry<MNISTImage>> chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                count += chunk.size();
+                for (DataSetEntry<MNISTImage> entry : chunk)
+                    labels.add(entry.getLabel());
+            }
+        }
+        if (count > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("MNISTColumnarReaderWriter: too many images");
+        LabelDictionary dictionary = LabelDictionary.of(labels);
+        if (dictionary.size() > 256)
+            throw new IllegalArgumentException("MNISTColumnarReaderWriter: too many labels");
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        try (DataOutputStream header = new DataOutputStream(headerBytes)) {
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt((int) count);
+            header.writeInt(MNISTImage.ROWS);
+            header.writeInt(MNISTImage.COLUMNS);
+            header.writeInt(dictionary.size());
+            for (int l = 0; l < dictionary.size(); l++) {
+                byte[] bytes = dictionary.nameOf(l).getBytes(StandardCharsets.UTF_8);
+                header.writeInt(bytes.length);
+                header.write(bytes);
+            }
+        }
+        long labelsOffset = headerBytes.size();
+        try (FileChannel channel = FileChannel.open(Paths.get(outputFilename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataSetChunkReader reader = MNISTDataSetReader.open(inputFilename, CHUNK_SIZE)) {
+            writeFully(channel, ByteBuffer.wrap(headerBytes.toByteArray()), 0);
+            long first = 0;
+            List<DataSetEntry<MNISTImage>> chunk;
+            byte[] column = new byte[CHUNK_SIZE];
+            while ((chunk = reader.nextChunk()) != null && first < count) {
+                int size = (int) Math.min(chunk.size(), count - first);
+                for (int i = 0; i < size; i++)
+                    column[i] = (byte) dictionary.idOf(chunk.get(i).getLabel());
+                writeFully(channel, ByteBuffer.wrap(column, 0, size), labelsOffset + first);
+                for (int p = 0; p < MNISTImage.SIZE; p++) {
+                    for (int i = 0; i < size; i++)
+                        column[i] = (byte) chunk.get(i).getObject().getPixel(p);
+                    writeFully(channel, ByteBuffer.wrap(column, 0, size), labelsOffset + (p + 1) * count + first);
+                }
+                first += size;
+            }
+            if (first != count)
+                throw new IOException("Input file '" + inputFilename + "' changed while converting");
+        }
+    }
+
+    /**
+     * Function to open a columnar data set file
+     * @param inputFilename - the input file path
+     * @return data set over the memory mapped columns of the file
+     * @throws IOException
+     * @throws ParseException if the file is not a valid columnar data set file
+     */
+    public static ByteColumnDataSet<MNISTImage> open(String inputFilename) throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate((int)Math.min(MAX_HEADER_SIZE, channel.size()));
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 24 || header.getInt() != MAGIC)
+                throw new ParseException("Not an MNIST columnar data set file", 0);
+            if (header.getInt() != VERSION)
+                throw new ParseException("Unsupported MNIST columnar data set file version", 4);
+            int count = header.getInt();
+            if (header.getInt() != MNISTImage.ROWS || header.getInt() != MNISTImage.COLUMNS)
+                throw new ParseException("Illegal image size", 12);
+            String[] labelNames = new String[header.getInt()];
+            for (int i = 0; i < labelNames.length; i++) {
+                byte[] bytes = new byte[header.getInt()];
+                header.get(bytes);
+                labelNames[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            long labelsOffset = header.position();
+            if (count < 0 || channel.size() != labelsOffset + (MNISTImage.SIZE + 1L) * count)
+                throw new ParseException("Truncated MNIST columnar data set file", header.position());
+            LabelDictionary dictionary = LabelDictionary.of(Arrays.asList(labelNames));
+            if (dictionary.size() != labelNames.length)
+                throw new ParseException("Duplicate labels in MNIST columnar data set file", 24);
+            ByteBuffer labelColumn = channel.map(FileChannel.MapMode.READ_ONLY, labelsOffset, count);
+            ByteBuffer[] columns = new ByteBuffer[MNISTImage.SIZE];
+            for (int p = 0; p < columns.length; p++)
+                columns[p] = channel.map(FileChannel.MapMode.READ_ONLY, labelsOffset + (p + 1L) * count, count);
+            try {
+                return new ByteColumnDataSet<>(columns, labelColumn, dictionary, MNISTImage::new);
+            } catch (IllegalArgumentException e) {
+                throw new ParseException("Illegal label id in MNIST columnar data set file", 0);
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new ParseException("Truncated MNIST columnar data set file", 0);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    /**
+     * Main method to convert a data set file (of any format read by {@link MNISTDataSetReader})
+     * to the columnar format
+     * @param args - input file path and output file path
+     */
+    public static void main(String[] args) throws IOException, ParseException {
+        if (args.length != 2) {
+            System.err.println("usage: MNISTColumnarReaderWriter <input_filename> <output_filename>");
+            System.exit(-1);
+        }
+        write(args[0], args[1]);
+    }
+}
@@ -0,0 +1,119 @@
+package bgu.projects.dataanalysis.common;
+
+import bgu.projects.dataanalysis.learntree.api.DataSet;
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+import bgu.projects.dataanalysis.learntree.api.DataSetImpl;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Utility class for reading an MNIST data set file of any supported format
+ * The format is detected from the file's first bytes:
+ * the compact binary format of {@link MNISTBinaryReaderWriter}, the columnar format of
+ * {@link MNISTColumnarReaderWriter}, an IDX images file
+ * (whose labels file is found by the standard MNIST naming, "images-idx3" replaced by "labels-idx1"),
+ * or otherwise a CSV file
+ */
+public class MNISTDataSetReader {
+
+    private static final String IDX_IMAGES_NAME = "images-idx3";
+    private static final String IDX_LABELS_NAME = "labels-idx1";
+
+    /**
+     * Function to read a data set file
+     * @param filename - the input file path
+     * @return a list of MNIST data set entries
+     * @throws IOException
+     * @throws ParseException
+     */
+    public static List<DataSetEntry<MNISTImage>> read(String filename) throws IOException, ParseException {
+        int magic = readMagic(filename);
+        if (magic == MNISTBinaryReaderWriter.MAGIC)
+            return MNISTBinaryReaderWriter.read(filename);
+        if (magic == MNISTColumnarReaderWriter.MAGIC)
+            return chunks(MNISTColumnarReaderWriter.open(filename), Integer.MAX_VALUE).readAll();
+        if (magic == MNISTIDXReader.IMAGES_MAGIC)
+            return MNISTIDXReader.read(filename, labelsFilename(filename));
+        return MNISTCSVParser.parseCSV(filename);
+    }
+
+    /**
+     * Function to open a data set file for reading in chunks
+     * @param filename - the input file path
+     * @param chunkSize - maximal number of entries per chunk
+     * @return reader of the data set
+     * @throws IOException
+     * @throws ParseException
+     */
+    public static DataSetChunkReader open(String filename, int chunkSize) throws IOException, ParseException {
+        int magic = readMagic(filename);
+        if (magic == MNISTBinaryReaderWriter.MAGIC)
+            return MNISTBinaryReaderWriter.open(filename, chunkSize);
+        if (magic == MNISTColumnarReaderWriter.MAGIC)
+            return chunks(MNISTColumnarReaderWriter.open(filename), chunkSize);
+        if (magic == MNISTIDXReader.IMAGES_MAGIC)
+            return MNISTIDXReader.open(filename, labelsFilename(filename), chunkSize);
+        return MNISTCSVParser.open(filename, chunkSize);
+    }
+
+    /**
+     * Function to open a data set file as a {@link DataSet}
+     * A columnar file is memory mapped and stays on disk, any other file is read into the heap
+     * @param filename - the input file path
+     * @return data set of the file's entries
+     * @throws IOException
+     * @throws ParseException
+     */
+    public static DataSet<MNISTImage> openDataSet(String filename) throws IOException, ParseException {
+        if (readMagic(filename) == MNISTColumnarReaderWriter.MAGIC)
+            return MNISTColumnarReaderWriter.open(filename);
+        return new DataSetImpl<>(read(filename));
+    }
+
+    private static DataSetChunkReader chunks(DataSet<MNISTImage> dataSet, int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size: not a legal value");
+        Iterator<DataSetEntry<MNISTImage>> entries = dataSet.iterator();
+        return new DataSetChunkReader() {
+            @Override
+            public List<DataSetEntry<MNISTImage>> nextChunk() {
+                if (!entries.hasNext())
+                    return null;
+                List<DataSetEntry<MNISTImage>> chunk = new ArrayList<>();
+                while (entries.hasNext() && chunk.size() < chunkSize)
+                    chunk.add(entries.next());
+                return chunk;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static int readMagic(String filename) throws IOException {
+        int magic;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filename))) {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            magic = 0;
+        }
+        return magic;
+    }
+
+    private static String labelsFilename(String imagesFilename) throws IOException {
+        String labelsFilename = imagesFilename.replace(IDX_IMAGES_NAME, IDX_LABELS_NAME);
+        if (labelsFilename.equals(imagesFilename) || !Files.exists(Paths.get(labelsFilename)))
+            throw new IOException("Could not find the labels file of '" + imagesFilename + "'");
+        return labelsFilename;
+    }
+}
@@ -0,0 +1,86 @@
+package bgu.projects.dataanalysis.common;
+
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * Utility class for reading MNIST data sets in their native IDX binary format
+ * A data set is a pair of files: an images file (idx3) and a labels file (idx1)
+ */
+public class MNISTIDXReader {
+
+    public static final int IMAGES_MAGIC = 0x00000803;
+    public static final int LABELS_MAGIC = 0x00000801;
+
+    /**
+     * Labels of the 256 possible label bytes
+     */
+    private static final String[] LABELS = new String[256];
+
+    static {
+        for (int i = 0; i < LABELS.length; i++)
+            LABELS[i] = Integer.toString(i);
+    }
+
+    /**
+     * Function to read an IDX data set
+     * The files are memory mapped and the pixels are transferred in bulk into shared pixel arrays
+     * @param imagesFilename - path of the images (idx3) file
+     * @param labelsFilename - path of the labels (idx1) file
+     * @return a list of MNIST data set entries
+     * @throws IOException
+     * @throws ParseException if a file is not a valid IDX file or the files do not match
+     */
+    public static List<DataSetEntry<MNISTImage>> read(String imagesFilename, String labelsFilename)
+            throws IOException, ParseException {
+        try (DataSetChunkReader reader = open(imagesFilename, labelsFilename, Integer.MAX_VALUE)) {
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * Function to open an IDX data set for reading in chunks
+     * @param imagesFilename - path of the images (idx3) file
+     * @param labelsFilename - path of the labels (idx1) file
+     * @param chunkSize - maximal number of entries per chunk
+     * @return reader of the data set
+     * @throws IOException
+     * @throws ParseException if a file is not a valid IDX file or the files do not match
+     */
+    public static DataSetChunkReader open(String imagesFilename, String labelsFilename, int chunkSize)
+            throws IOException, ParseException {
+        FileChannel images = FileChannel.open(Paths.get(imagesFilename), StandardOpenOption.READ);
+        FileChannel labels = null;
+        try {
+            labels = FileChannel.open(Paths.get(labelsFilename), StandardOpenOption.READ);
+            ByteBuffer imagesHeader = ByteBuffer.allocate(16);
+            ByteBuffer labelsHeader = ByteBuffer.allocate(8);
+            images.read(imagesHeader, 0);
+            labels.read(labelsHeader, 0);
+            if (imagesHeader.position() < 16 || imagesHeader.getInt(0) != IMAGES_MAGIC)
+                throw new ParseException("Not an IDX images file", 0);
+            if (labelsHeader.position() < 8 || labelsHeader.getInt(0) != LABELS_MAGIC)
+                throw new ParseException("Not an IDX labels file", 0);
+            int count = imagesHeader.getInt(4);
+            if (imagesHeader.getInt(8) != MNISTImage.ROWS || imagesHeader.getInt(12) != MNISTImage.COLUMNS)
+                throw new ParseException("Illegal image size", 8);
+            if (labelsHeader.getInt(4) != count)
+                throw new ParseException("Number of labels does not match number of images", 4);
+            if (count < 0 || images.size() != 16 + (long)count*MNISTImage.SIZE || labels.size() != 8L + count)
+                throw new ParseException("Truncated IDX file", 0);
+            return new MappedImageChunkReader(images, 16, labels, 8, LABELS, count, chunkSize);
+        } catch (IOException | ParseException | RuntimeException e) {
+            images.close();
+            if (labels != null)
+                labels.close();
+            throw e;
+        }
+    }
+}
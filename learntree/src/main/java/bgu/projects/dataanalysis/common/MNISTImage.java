@@ -1,21 +1,73 @@
 package bgu.projects.dataanalysis.common;
 
+import bgu.projects.dataanalysis.learntree.api.ByteFeatureVector;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 
 /**
  * Class to represent an image from the MNIST data set
+ * The pixels are kept as primitive bytes, either in a dedicated array
+ * or as a row-major view into a larger array shared by many images
  */
-public class MNISTImage implements Serializable{
+public class MNISTImage implements ByteFeatureVector, Serializable{
     public static final int ROWS = 28;
     public static final int COLUMNS = 28;
     public static final int SIZE = ROWS*COLUMNS;
-    private Byte[] arr;
+    private transient byte[] pixels;
+    private transient int offset;
 
-    public MNISTImage(Byte [] arr) {
-        if (arr.length == SIZE)
-            this.arr = arr;
-        else
+    public MNISTImage(byte[] pixels) {
+        if (pixels.length != SIZE)
             throw new IllegalArgumentException("MNISTImage: Illegal image size");
+        this.pixels = pixels;
+        this.offset = 0;
+    }
+
+    /**
+     * Constructor of an image which is a view into a shared pixel array
+     * @param pixels - array holding consecutive row-major images
+     * @param offset - the index of this image's first pixel in the array
+     */
+    public MNISTImage(byte[] pixels, int offset) {
+        if (offset < 0 || offset > pixels.length - SIZE)
+            throw new IllegalArgumentException("MNISTImage: Illegal image offset");
+        this.pixels = pixels;
+        this.offset = offset;
+    }
+
+    /**
+     * Method to return the pixel value at a given row-major index
+     * @param index - pixel index, between 0 and {@link #SIZE}-1
+     * @return pixel value, between 0 and 255
+     */
+    public int getPixel(int index){
+        if (index >= 0 && index < SIZE)
+            return pixels[offset+index] & 0xff;
+        throw new IllegalArgumentException("Index exceeded image boundaries");
+    }
+
+    /**
+     * Method to return the pixel value at a given row-major index
+     * @param index - pixel index, between 0 and {@link #SIZE}-1
+     * @return pixel value, between 0 and 255
+     */
+    @Override
+    public int getValue(int index){
+        return getPixel(index);
+    }
+
+    @Override
+    public byte[] getValues() {
+        return pixels;
+    }
+
+    @Override
+    public int getOffset() {
+        return offset;
     }
 
     /**
@@ -24,9 +76,33 @@ public class MNISTImage implements Serializable{
      * @param y - column coordinate
      * @return pixel value
      */
-    public Integer getPixelValue(int x, int y){
+    public int getPixelValue(int x, int y){
         if(x >= 0 && x < ROWS && y >= 0 && y < COLUMNS)
-            return (arr[x*COLUMNS+y] & 0xff);
+            return pixels[offset+x*COLUMNS+y] & 0xff;
         throw new IllegalArgumentException("Coordinates exceeded image boundaries");
     }
+
+    /**
+     * Method to write this image's pixels, in row-major order
+     * @param out - the stream to write to
+     * @throws IOException
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(pixels, offset, SIZE);
+    }
+
+    /**
+     * Serializes only this image's pixels and not the whole shared array
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.write(pixels, offset, SIZE);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        pixels = new byte[SIZE];
+        in.readFully(pixels);
+        offset = 0;
+    }
 }
@@ -0,0 +1,87 @@
+package bgu.projects.dataanalysis.common;
+
+import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that implements {@link DataSetChunkReader} for binary files which hold
+ * one label id byte per image and the images' pixels in row-major order
+ * Every chunk maps only its own region of the files, and its pixels are transferred
+ * in bulk into shared pixel arrays
+ */
+class MappedImageChunkReader implements DataSetChunkReader {
+
+    /**
+     * Number of images sharing a single contiguous pixel array
+     */
+    static final int IMAGES_PER_SLAB = 1 << 16;
+
+    private final FileChannel pixelsChannel;
+    private final long pixelsOffset;
+    private final FileChannel labelsChannel;
+    private final long labelsOffset;
+    private final String[] labelNames;
+    private final int count;
+    private final int chunkSize;
+    private int next;
+
+    /**
+     * @param pixelsChannel - the file holding the pixels
+     * @param pixelsOffset - offset of the first image's pixels
+     * @param labelsChannel - the file holding the label ids, may be the same as pixelsChannel
+     * @param labelsOffset - offset of the first image's label id
+     * @param labelNames - label names, indexed by label id byte
+     * @param count - number of images
+     * @param chunkSize - maximal number of images per chunk
+     */
+    MappedImageChunkReader(FileChannel pixelsChannel, long pixelsOffset, FileChannel labelsChannel,
+                           long labelsOffset, String[] labelNames, int count, int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size: not a legal value");
+        this.pixelsChannel = pixelsChannel;
+        this.pixelsOffset = pixelsOffset;
+        this.labelsChannel = labelsChannel;
+        this.labelsOffset = labelsOffset;
+        this.labelNames = labelNames;
+        this.count = count;
+        this.chunkSize = chunkSize;
+        this.next = 0;
+    }
+
+    @Override
+    public List<DataSetEntry<MNISTImage>> nextChunk() throws IOException {
+        if (next == count)
+            return null;
+        int size = Math.min(chunkSize, count - next);
+        MappedByteBuffer labels = labelsChannel.map(FileChannel.MapMode.READ_ONLY, labelsOffset + next, size);
+        List<DataSetEntry<MNISTImage>> dataSet = new ArrayList<>(size);
+        for (int first = 0; first < size; first += IMAGES_PER_SLAB) {
+            int slabImages = Math.min(IMAGES_PER_SLAB, size - first);
+            byte[] slab = new byte[slabImages*MNISTImage.SIZE];
+            pixelsChannel.map(FileChannel.MapMode.READ_ONLY,
+                    pixelsOffset + (long)(next + first)*MNISTImage.SIZE, slab.length).get(slab);
+            for (int i = 0; i < slabImages; i++) {
+                int labelId = labels.get(first + i) & 0xff;
+                if (labelId >= labelNames.length)
+                    throw new IOException("Illegal label id " + labelId + " of image " + (next + first + i));
+                dataSet.add(new DataSetEntry<>(labelNames[labelId], new MNISTImage(slab, i*MNISTImage.SIZE)));
+            }
+        }
+        next += size;
+        return dataSet;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            pixelsChannel.close();
+        } finally {
+            labelsChannel.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package bgu.projects.dataanalysis.common.legacy;
+
+import bgu.projects.dataanalysis.learntree.api.CompiledDecisionTree;
+import bgu.projects.dataanalysis.learntree.api.ThresholdFeature;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Class to read a tree written by the first version of {@link bgu.projects.dataanalysis.learntree.api.DecisionTree}
+ * It has the name, nested classes and serialVersionUIDs of the first version (as compiled by javac), and only the
+ * fields a tree needs for prediction, the other fields of the first version are read and dropped
+ * After it is read it resolves itself to the equivalent current tree
+ */
+class DecisionTree implements Serializable {
+
+    private static final long serialVersionUID = -7832692073396795689L;
+
+    private Serializable root;
+
+    /**
+     * Inner node of a tree of the first version
+     */
+    static class FeatureNode implements Serializable {
+
+        private static final long serialVersionUID = -300919885417460340L;
+
+        /**
+         * The feature, which {@link Main} resolved to a {@link ThresholdFeature}
+         */
+        private Object feature;
+        private Serializable right;
+        private Serializable left;
+    }
+
+    /**
+     * Leaf of a tree of the first version
+     */
+    static class LabelNode implements Serializable {
+
+        private static final long serialVersionUID = -7701609198214205753L;
+
+        private String label;
+    }
+
+    /**
+     * Method to return the current tree equivalent to this tree, whose feature nodes are given growth orders
+     * by their pre-order
+     * @return a {@link bgu.projects.dataanalysis.learntree.api.DecisionTree} predicting like this tree
+     * @throws ObjectStreamException if the tree is empty or has a feature which is not a threshold feature
+     */
+    private Object readResolve() throws ObjectStreamException {
+        if (root == null)
+            throw new InvalidObjectException("DecisionTree: an empty tree can not be read");
+        List<Serializable> nodes = new ArrayList<>();
+        SortedSet<String> labelSet = new TreeSet<>();
+        Deque<Serializable> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Serializable node = stack.pop();
+            nodes.add(node);
+            if (node instanceof FeatureNode) {
+                FeatureNode featureNode = (FeatureNode) node;
+                if (!(featureNode.feature instanceof ThresholdFeature))
+                    throw new InvalidObjectException("DecisionTree: the feature of a node can not be read");
+                stack.push(featureNode.right);
+                stack.push(featureNode.left);
+            }
+            else if (((LabelNode) node).label != null)
+                labelSet.add(((LabelNode) node).label);
+        }
+        String[] labelNames = labelSet.toArray(new String[0]);
+        Map<Serializable, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++)
+            positions.put(nodes.get(i), i);
+        int[] valueIndices = new int[nodes.size()];
+        int[] thresholds = new int[nodes.size()];
+        int[] rightChildren = new int[nodes.size()];
+        int[] labels = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            Serializable node = nodes.get(i);
+            if (node instanceof FeatureNode) {
+                ThresholdFeature<?> feature = (ThresholdFeature<?>) ((FeatureNode) node).feature;
+                valueIndices[i] = feature.getIndex();
+                thresholds[i] = feature.getThreshold();
+                rightChildren[i] = positions.get(((FeatureNode) node).right);
+                labels[i] = -1;
+            }
+            else {
+                String label = ((LabelNode) node).label;
+                valueIndices[i] = -1;
+                labels[i] = label == null ? -1 : Arrays.binarySearch(labelNames, label);
+            }
+        }
+        return CompiledDecisionTree.of(valueIndices, thresholds, rightChildren, labels, labelNames).toDecisionTree();
+    }
+}
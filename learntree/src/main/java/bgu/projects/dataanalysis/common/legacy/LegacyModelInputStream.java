@@ -0,0 +1,52 @@
+package bgu.projects.dataanalysis.common.legacy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stream to read models written by Java serialization, including the tree files of the first version
+ * of the project, whose nodes were inner classes of the tree and whose features were lambdas
+ * The classes of the first version are resolved to the classes of this package, which have their names and
+ * serialVersionUIDs and resolve themselves to the equivalent current objects
+ * Other classes of the project whose serialVersionUID changed are not resolved, so their objects are dropped
+ * unless a resolved object holds them (the data sets of old trees are dropped this way)
+ */
+public class LegacyModelInputStream extends ObjectInputStream {
+
+    private static final String PROJECT_PACKAGE = "bgu.projects.dataanalysis.";
+    private static final String TREE_CLASS = "bgu.projects.dataanalysis.learntree.api.DecisionTree";
+    private static final Map<String, Class<?>> LEGACY_CLASSES = new HashMap<>();
+
+    static {
+        LEGACY_CLASSES.put(TREE_CLASS, DecisionTree.class);
+        LEGACY_CLASSES.put(TREE_CLASS + "$FeatureNode", DecisionTree.FeatureNode.class);
+        LEGACY_CLASSES.put(TREE_CLASS + "$LabelNode", DecisionTree.LabelNode.class);
+        // the class which captured the feature lambdas, serialized lambdas are deserialized by it
+        LEGACY_CLASSES.put("bgu.projects.dataanalysis.learntree.Main", Main.class);
+    }
+
+    public LegacyModelInputStream(InputStream in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        Class<?> legacyClass = LEGACY_CLASSES.get(desc.getName());
+        if (legacyClass != null) {
+            ObjectStreamClass legacyDesc = ObjectStreamClass.lookup(legacyClass);
+            if (legacyDesc == null || legacyDesc.getSerialVersionUID() == desc.getSerialVersionUID())
+                return legacyClass;
+        }
+        Class<?> localClass = super.resolveClass(desc);
+        ObjectStreamClass localDesc = ObjectStreamClass.lookup(localClass);
+        // classes which are not serializable, whose class objects can be written, have serialVersionUID 0
+        long localVersion = localDesc == null ? 0 : localDesc.getSerialVersionUID();
+        if (desc.getName().startsWith(PROJECT_PACKAGE) && localVersion != desc.getSerialVersionUID())
+            throw new ClassNotFoundException(desc.getName() + " of an older version");
+        return localClass;
+    }
+}
@@ -0,0 +1,39 @@
+package bgu.projects.dataanalysis.common.legacy;
+
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.FeatureVector;
+import bgu.projects.dataanalysis.learntree.api.ThresholdFeature;
+
+import java.lang.invoke.SerializedLambda;
+
+/**
+ * Class to read the features of trees written by the first version of the project: serializable lambdas captured
+ * by the first version of {@link bgu.projects.dataanalysis.learntree.Main}, which {@link LegacyModelInputStream}
+ * resolves to this class
+ */
+final class Main {
+
+    /**
+     * Signature of the method of the version 1 feature lambda, which tests whether the pixel at a row x and
+     * a column y is greater than 128
+     */
+    private static final String FEATURE_SIGNATURE = "(IILbgu/projects/dataanalysis/common/MNISTImage;)Z";
+    private static final int FEATURE_THRESHOLD = 128;
+
+    private Main() {}
+
+    /**
+     * Function to deserialize a lambda captured by the first version of the learntree Main,
+     * called by {@link SerializedLambda} by the name of the method javac generates for classes with such lambdas
+     * @param lambda - the serialized lambda
+     * @return the {@link ThresholdFeature} equivalent to the lambda
+     * @throws IllegalArgumentException if the lambda is not a version 1 feature
+     */
+    private static Object $deserializeLambda$(SerializedLambda lambda) {
+        if (!FEATURE_SIGNATURE.equals(lambda.getImplMethodSignature()) || lambda.getCapturedArgCount() != 2)
+            throw new IllegalArgumentException("Unknown feature " + lambda.getImplMethodName());
+        int x = (Integer) lambda.getCapturedArg(0);
+        int y = (Integer) lambda.getCapturedArg(1);
+        return new ThresholdFeature<FeatureVector>(x * MNISTImage.COLUMNS + y, FEATURE_THRESHOLD);
+    }
+}
@@ -1,16 +1,18 @@
 package bgu.projects.dataanalysis.learntree;
 
-import bgu.projects.dataanalysis.common.MNISTCSVParser;
+import bgu.projects.dataanalysis.common.MNISTDataSetReader;
 import bgu.projects.dataanalysis.common.DecisionTreeFileReaderWriter;
 import bgu.projects.dataanalysis.common.MNISTImage;
 import bgu.projects.dataanalysis.learntree.api.*;
 
+import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Serializable;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 import java.util.function.Predicate;
 
 import static java.lang.System.exit;
@@ -20,12 +22,73 @@ import static java.lang.System.exit;
  */
 public class Main {
 
+    /**
+     * Optional arguments, given after the positional arguments as --name or --name=value
+     * fine-grained - choose the tree size among all sizes up to 2^L and not only powers of 2
+     * error-curve - file to write the validation error of every tree size to
+     * seed - seed of the validation split, for reproducible runs
+     * stratified - keep the proportions of the labels in the validation split
+     * folds - choose the tree size by k-fold cross validation instead of a single validation split
+     * threads - number of threads training runs on
+     * memory-budget - megabytes that concurrent cross validation runs may allocate
+     * trees - train a random forest of this number of trees instead of a single tree
+     * feature-percentage - percentage of the pixels every tree of a forest is trained on
+     * log - write the duration of every phase and the measurements of every training iteration to stderr
+     * metrics - JSON-lines file to write the duration of every phase and the measurements of every iteration to
+     * checkpoint - file name prefix of the checkpoints of the training runs, requires a seed
+     * checkpoint-interval - seconds between two checkpoints of a training run
+     * resume - continue the training runs from their checkpoints
+     * threshold-step - gray levels between the thresholds of a pixel in the version 2 features
+     * Optional arguments of the update command:
+     * min-samples - minimal number of new images which must reach a leaf for it to be split
+     * max-splits - maximal number of splits the update grows
+     * tie-threshold - gain difference (nats per image) under which splits tie, a large value splits by gain alone
+     * threads - number of threads split search runs on
+     * threshold-step - gray levels between the version 2 thresholds new splits are chosen from
+     */
+    private static final String FINE_GRAINED_OPTION = "fine-grained";
+    private static final String ERROR_CURVE_OPTION = "error-curve";
+    private static final String SEED_OPTION = "seed";
+    private static final String STRATIFIED_OPTION = "stratified";
+    private static final String FOLDS_OPTION = "folds";
+    private static final String THREADS_OPTION = "threads";
+    private static final String MEMORY_BUDGET_OPTION = "memory-budget";
+    private static final String TREES_OPTION = "trees";
+    private static final String FEATURE_PERCENTAGE_OPTION = "feature-percentage";
+    private static final String LOG_OPTION = "log";
+    private static final String METRICS_OPTION = "metrics";
+    private static final String CHECKPOINT_OPTION = "checkpoint";
+    private static final String CHECKPOINT_INTERVAL_OPTION = "checkpoint-interval";
+    private static final String RESUME_OPTION = "resume";
+    private static final String THRESHOLD_STEP_OPTION = "threshold-step";
+    private static final Set<String> OPTIONS = new HashSet<>(Arrays.asList(FINE_GRAINED_OPTION, ERROR_CURVE_OPTION,
+            SEED_OPTION, STRATIFIED_OPTION, FOLDS_OPTION, THREADS_OPTION, MEMORY_BUDGET_OPTION, TREES_OPTION,
+            FEATURE_PERCENTAGE_OPTION, LOG_OPTION, METRICS_OPTION, CHECKPOINT_OPTION, CHECKPOINT_INTERVAL_OPTION,
+            RESUME_OPTION, THRESHOLD_STEP_OPTION));
+    private static final String UPDATE_COMMAND = "update";
+    private static final String MIN_SAMPLES_OPTION = "min-samples";
+    private static final String MAX_SPLITS_OPTION = "max-splits";
+    private static final String TIE_THRESHOLD_OPTION = "tie-threshold";
+    private static final Set<String> UPDATE_OPTIONS = new HashSet<>(Arrays.asList(MIN_SAMPLES_OPTION,
+            MAX_SPLITS_OPTION, TIE_THRESHOLD_OPTION, THREADS_OPTION, THRESHOLD_STEP_OPTION));
+
+    private static final int DEFAULT_FEATURE_PERCENTAGE = 50;
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 60;
+    private static final int DEFAULT_THRESHOLD_STEP = 1;
+
     /**
      * main method to create the decision tree
      * @param args - configuration for the tree
      */
     public static void main(String[] args){
 
+        if (args.length > 0 && args[0].equals(UPDATE_COMMAND)) {
+            update(args);
+            return;
+        }
+        TrainingLog log = null;
+        // the file being read or written, reported if it can not be
+        String file = null;
         try {
             int version = Integer.parseInt(args[0]);
             int percentage = Integer.parseInt(args[1]);
@@ -33,94 +96,422 @@ public class Main {
             validationCheck(version, percentage, maxPow);
             String trainingSetFilename = args[3];
             String outputTreeFilename = args[4];
-            List<DataSetEntry<MNISTImage>> trainingDataSet = MNISTCSVParser.parseCSV(trainingSetFilename);
-            DataSet<MNISTImage> dataSet = new DataSetImpl<>(trainingDataSet);
-            Tuple2<DataSet<MNISTImage>, DataSet<MNISTImage>> splits = dataSet.splitByPercentage(percentage);
-            DataSet<MNISTImage> validationSample = splits.getT1();
-            DataSet<MNISTImage> trainingSample = splits.getT2();
-            int[] extractTreeIterations = new int[maxPow+1];
-            for(int i = 0; i < extractTreeIterations.length; i++)
-                extractTreeIterations[i] = (int)(Math.pow(2, i));
-            List<DecisionTree<MNISTImage>> learnTrees = DecisionTree.buildTree(
-                    getFeaturesByVersion(version),
-                    trainingSample,
-                    col->new DataSetImpl<>(col),
-                    extractTreeIterations);
+            Map<String, String> options = parseOptions(args, 5, OPTIONS);
+            long seed = options.containsKey(SEED_OPTION) ?
+                    Long.parseLong(options.get(SEED_OPTION)) : new Random().nextLong();
+            TrainingOptions trainingOptions = TrainingOptions.defaults();
+            if (options.containsKey(THREADS_OPTION))
+                trainingOptions.withParallelism(Integer.parseInt(options.get(THREADS_OPTION)));
+            int numOfTrees = options.containsKey(TREES_OPTION) ? Integer.parseInt(options.get(TREES_OPTION)) : 0;
+            int featurePercentage = options.containsKey(FEATURE_PERCENTAGE_OPTION) ?
+                    Integer.parseInt(options.get(FEATURE_PERCENTAGE_OPTION)) : DEFAULT_FEATURE_PERCENTAGE;
+            boolean forest = numOfTrees > 0;
+            if (numOfTrees < 0 || featurePercentage < 0 || featurePercentage > 100 ||
+                    (forest && options.containsKey(FOLDS_OPTION)))
+                printErrorMessage();
+            // only single training runs are checkpointed, and they are resumed only if they have the same samples
+            String checkpoint = options.get(CHECKPOINT_OPTION);
+            if (checkpoint != null ?
+                    checkpoint.isEmpty() || forest || options.containsKey(FOLDS_OPTION) ||
+                            !options.containsKey(SEED_OPTION) :
+                    options.containsKey(CHECKPOINT_INTERVAL_OPTION) || options.containsKey(RESUME_OPTION))
+                printErrorMessage();
+            long checkpointInterval = options.containsKey(CHECKPOINT_INTERVAL_OPTION) ?
+                    Long.parseLong(options.get(CHECKPOINT_INTERVAL_OPTION)) : DEFAULT_CHECKPOINT_INTERVAL;
+            if (checkpointInterval < 0)
+                printErrorMessage();
+            trainingOptions.withResume(options.containsKey(RESUME_OPTION));
+            int thresholdStep = thresholdStep(options);
+            file = options.get(METRICS_OPTION);
+            if (options.containsKey(LOG_OPTION) || options.containsKey(METRICS_OPTION))
+                log = new TrainingLog(options.containsKey(LOG_OPTION) ? System.err : null,
+                        options.get(METRICS_OPTION));
+            long start = System.nanoTime();
+            file = trainingSetFilename;
+            DataSet<MNISTImage> dataSet = MNISTDataSetReader.openDataSet(trainingSetFilename);
+            start = phase(log, "parsing", start);
+            Collection<Predicate<MNISTImage>> features = getFeaturesByVersion(version, thresholdStep);
+            // a single version 1 tree trains over precomputed features, other models over pixel columns,
+            // unless on disk already
+            FeatureMatrix<MNISTImage> featureMatrix = null;
+            if (!(dataSet instanceof ByteColumnDataSet)) {
+                if (version == 1 && !forest)
+                    featureMatrix = new FeatureMatrix<>(features, dataSet);
+                else
+                    dataSet = ByteColumnDataSet.copyOf(dataSet, MNISTImage.SIZE, MNISTImage::new);
+            }
+            start = phase(log, "features", start);
+            boolean stratified = options.containsKey(STRATIFIED_OPTION);
+            boolean fineGrained = options.containsKey(FINE_GRAINED_OPTION);
+            int maxTreeSize = 1 << maxPow;
+            int numOfTrainingSamples;
+            int numOfValidationSamples;
+            int[] errorCurve;
+            DecisionTree<MNISTImage> dataSetTree = null;
+            if (options.containsKey(FOLDS_OPTION)) {
+                int numOfFolds = Integer.parseInt(options.get(FOLDS_OPTION));
+                if (numOfFolds < 2)
+                    printErrorMessage();
+                long memoryBudget = options.containsKey(MEMORY_BUDGET_OPTION) ?
+                        Long.parseLong(options.get(MEMORY_BUDGET_OPTION)) << 20 : freeMemory();
+                List<Tuple2<DataSet<MNISTImage>, DataSet<MNISTImage>>> folds = stratified ?
+                        dataSet.stratifiedKFold(numOfFolds, seed) :
+                        dataSet.kFold(numOfFolds, seed);
+                start = phase(log, "splitting", start);
+                trainingOptions.withListener(listener(log, "cross-validation"));
+                Tuple2<DecisionTree<MNISTImage>, int[]> validation = featureMatrix != null ?
+                        CrossValidation.validate(featureMatrix, dataSet, folds, maxTreeSize, trainingOptions,
+                                memoryBudget) :
+                        CrossValidation.validate(features, dataSet, folds, maxTreeSize, trainingOptions,
+                                memoryBudget);
+                // the folds are validated as soon as they are trained
+                start = phase(log, "training and validation", start);
+                dataSetTree = validation.getT1();
+                errorCurve = validation.getT2();
+                numOfTrainingSamples = dataSet.size() - dataSet.size() / numOfFolds;
+                numOfValidationSamples = dataSet.size();
+            }
+            else {
+                Tuple2<DataSet<MNISTImage>, DataSet<MNISTImage>> splits = stratified ?
+                        dataSet.stratifiedSplitByPercentage(percentage, seed) :
+                        dataSet.splitByPercentage(percentage, seed);
+                DataSet<MNISTImage> validationSample = splits.getT1();
+                DataSet<MNISTImage> trainingSample = splits.getT2();
+                start = phase(log, "splitting", start);
+                trainingOptions.withListener(listener(log, "training"))
+                        .withCheckpoint(checkpointFile(checkpoint, "training"), checkpointInterval * 1000);
+                if (forest) {
+                    RandomForest<MNISTImage> learnForest = RandomForest.build(features, trainingSample, numOfTrees,
+                            maxTreeSize, featurePercentage, seed, trainingOptions);
+                    start = phase(log, "training", start);
+                    errorCurve = forestErrorCurve(learnForest, validationSample, maxTreeSize, fineGrained);
+                }
+                else {
+                    DecisionTree<MNISTImage> learnTree = buildTree(
+                            features,
+                            featureMatrix,
+                            trainingSample,
+                            maxTreeSize,
+                            trainingOptions);
+                    start = phase(log, "training", start);
+                    errorCurve = learnTree.errorCurve(validationSample);
+                }
+                start = phase(log, "validation", start);
+                numOfTrainingSamples = trainingSample.size();
+                numOfValidationSamples = validationSample.size();
+            }
+            if (options.containsKey(ERROR_CURVE_OPTION)) {
+                file = options.get(ERROR_CURVE_OPTION);
+                writeErrorCurve(file, errorCurve, numOfValidationSamples);
+            }
             int minError = 100;
             int bestTreeSize = -1;
-            for(int i=0; i < learnTrees.size() ; i++) {
-                int error = calcError(learnTrees.get(i), validationSample);
+            for(int treeSize = 1; treeSize <= maxTreeSize;
+                treeSize = fineGrained ? treeSize + 1 : treeSize * 2) {
+                int error = toPercentage(errorCurve[Math.min(treeSize, errorCurve.length - 1)],
+                        numOfValidationSamples);
                 if(error < minError) {
                     minError = error;
-                    bestTreeSize = extractTreeIterations[i];
+                    bestTreeSize = treeSize;
                 }
             }
-            System.out.println("num: " + trainingSample.size());
+            System.out.println("num: " + numOfTrainingSamples);
             System.out.println("error: " + minError);
             System.out.println("size: " + bestTreeSize);
-            List<DecisionTree<MNISTImage>> finalLearnTree = DecisionTree.buildTree(
-                    getFeaturesByVersion(version),
-                    dataSet,
-                    col->new DataSetImpl<>(col),
-                    new int[] {bestTreeSize});
-            DecisionTreeFileReaderWriter.write(outputTreeFilename, finalLearnTree.get(0));
+            trainingOptions.withListener(listener(log, "final"))
+                    .withCheckpoint(checkpointFile(checkpoint, "final"), checkpointInterval * 1000);
+            if (forest) {
+                RandomForest<MNISTImage> finalLearnForest = RandomForest.build(features, dataSet, numOfTrees,
+                        bestTreeSize, featurePercentage, seed, trainingOptions);
+                start = phase(log, "final training", start);
+                file = outputTreeFilename;
+                DecisionTreeFileReaderWriter.write(outputTreeFilename, finalLearnForest);
+            }
+            else {
+                DecisionTree<MNISTImage> finalLearnTree = dataSetTree != null ?
+                        dataSetTree.snapshot(bestTreeSize) :
+                        buildTree(features, featureMatrix, dataSet, bestTreeSize, trainingOptions);
+                start = phase(log, "final training", start);
+                file = outputTreeFilename;
+                DecisionTreeFileReaderWriter.write(outputTreeFilename, finalLearnTree);
+            }
+            phase(log, "writing", start);
+            // the model is written, so the checkpoints are of no use anymore
+            if (checkpoint != null) {
+                for (String run : new String[] {"training", "final"}) {
+                    file = checkpointFile(checkpoint, run);
+                    Files.deleteIfExists(Paths.get(file));
+                }
+            }
 
         } catch (NumberFormatException | IndexOutOfBoundsException e) {
             printErrorMessage();
         } catch (ParseException pe){
-            System.err.println("Illegal training-set format");
+            System.err.println("Illegal training-set format: " + pe.getMessage());
+            exit(-1);
+        } catch (UncheckedIOException uioe) {
+            // the cause tells why, and the message which checkpoint file failed
+            IOException cause = uioe.getCause();
+            System.err.println(uioe.getMessage() + ": " +
+                    (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName()));
             exit(-1);
         } catch (IOException ioe) {
-            System.err.println("Could not open file '" + args[3] + "'");
+            System.err.println("Could not open file '" + file + "'");
+            exit(-1);
+        } finally {
+            if (log != null)
+                log.close();
+        }
+    }
+
+    /**
+     * Method to update a tree with a batch of new labeled images, without training it again,
+     * and to write the updated tree
+     * @param args - the update command and its arguments
+     */
+    private static void update(String[] args){
+        int version;
+        String modelFilename;
+        String batchFilename;
+        String outputTreeFilename;
+        Map<String, String> options;
+        Integer minSamples;
+        Integer maxSplits;
+        Double tieThreshold;
+        Integer threads;
+        int thresholdStep;
+        // only malformed arguments are answered with the usage, errors of the values and the model with their message
+        try {
+            version = Integer.parseInt(args[1]);
+            modelFilename = args[2];
+            batchFilename = args[3];
+            outputTreeFilename = args[4];
+            options = parseOptions(args, 5, UPDATE_OPTIONS);
+            minSamples = options.containsKey(MIN_SAMPLES_OPTION) ?
+                    Integer.valueOf(options.get(MIN_SAMPLES_OPTION)) : null;
+            maxSplits = options.containsKey(MAX_SPLITS_OPTION) ? Integer.valueOf(options.get(MAX_SPLITS_OPTION)) : null;
+            tieThreshold = options.containsKey(TIE_THRESHOLD_OPTION) ?
+                    Double.valueOf(options.get(TIE_THRESHOLD_OPTION)) : null;
+            threads = options.containsKey(THREADS_OPTION) ? Integer.valueOf(options.get(THREADS_OPTION)) : null;
+            thresholdStep = thresholdStep(options);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            printErrorMessage();
+            return;
+        }
+        if (version != 1 && version != 2)
+            printErrorMessage();
+        try {
+            UpdateOptions updateOptions = UpdateOptions.defaults();
+            if (minSamples != null)
+                updateOptions.withMinSamples(minSamples);
+            if (maxSplits != null)
+                updateOptions.withMaxSplits(maxSplits);
+            if (tieThreshold != null)
+                updateOptions.withTieThreshold(tieThreshold);
+            if (threads != null)
+                updateOptions.withParallelism(threads);
+            DecisionTree<MNISTImage> tree = DecisionTreeFileReaderWriter.read(modelFilename);
+            DataSet<MNISTImage> batch = MNISTDataSetReader.openDataSet(batchFilename);
+            int grown = tree.update(getFeaturesByVersion(version, thresholdStep), batch, updateOptions);
+            DecisionTreeFileReaderWriter.write(outputTreeFilename, tree);
+            System.out.println("num: " + batch.size());
+            System.out.println("grown: " + grown);
+            System.out.println("size: " + tree.getNumOfSplits());
+        } catch (ParseException pe){
+            System.err.println("Illegal batch format: " + pe.getMessage());
+            exit(-1);
+        } catch (IOException | ClassNotFoundException | IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Could not update '" + modelFilename + "': " + e.getMessage());
             exit(-1);
         }
     }
 
+    /**
+     * Function to report the duration of a phase to the log, if there is one
+     * @param log - the log, or null
+     * @param name - the name of the phase
+     * @param start - the System.nanoTime() of the start of the phase
+     * @return the System.nanoTime() of the end of the phase, which is the start of the next phase
+     */
+    private static long phase(TrainingLog log, String name, long start) {
+        long end = System.nanoTime();
+        if (log != null)
+            log.phase(name, end - start);
+        return end;
+    }
+
+    /**
+     * Function to create a listener which reports the iterations of a training run to the log, if there is one
+     * @param log - the log, or null
+     * @param run - the name of the run
+     * @return the listener, or null if there is no log, so the run is not measured
+     */
+    private static TrainingListener listener(TrainingLog log, String run) {
+        return log == null ? null : log.listener(run);
+    }
+
+    /**
+     * Function to return the checkpoint file of a training run
+     * @param checkpoint - file name prefix of the checkpoints, or null
+     * @param run - the name of the run
+     * @return the checkpoint file, or null if the runs are not checkpointed
+     */
+    private static String checkpointFile(String checkpoint, String run) {
+        return checkpoint == null ? null : checkpoint + "." + run;
+    }
+
+    /**
+     * Function to return the number of gray levels between the thresholds of a pixel in the version 2 features
+     * @param options - the optional arguments
+     * @return the threshold step, between 1 and 255
+     * @throws NumberFormatException if the step is not a number
+     */
+    private static int thresholdStep(Map<String, String> options) {
+        int thresholdStep = options.containsKey(THRESHOLD_STEP_OPTION) ?
+                Integer.parseInt(options.get(THRESHOLD_STEP_OPTION)) : DEFAULT_THRESHOLD_STEP;
+        if (thresholdStep < 1 || thresholdStep > 255)
+            printErrorMessage();
+        return thresholdStep;
+    }
+
     /**
      *
      * @param version
+     * @param thresholdStep - gray levels between the thresholds of a pixel in the version 2 features
      * @return
      */
-    private static Collection<Predicate<MNISTImage>> getFeaturesByVersion(int version) {
+    private static Collection<Predicate<MNISTImage>> getFeaturesByVersion(int version, int thresholdStep) {
         Collection<Predicate<MNISTImage>> features = new ArrayList<>();
         if (version == 1){
-            for (int i = 0; i < MNISTImage.ROWS; i++) {
-                int x = i;
-                for (int j = 0; j < MNISTImage.COLUMNS; j++) {
-                    int y = j;
-                    features.add((Predicate<MNISTImage>&Serializable) img -> img.getPixelValue(x,y) > 128);
-                }
-            }
+            for (int i = 0; i < MNISTImage.SIZE; i++)
+                features.add(new ThresholdFeature<>(i, 128));
         }
         else {
-            //TODO: complete the second version
+            // every thresholdStep-th gray level threshold of every pixel (every level by default),
+            // the thresholds of a pixel are evaluated together
+            // on 48000 images with 256 splits every level reaches 6% validation error, and every 16th level 8%,
+            // a third more errors. Every level trains 2 to 3 times as long as version 1 (30% error),
+            // every 16th level faster than version 1
+            for (int i = 0; i < MNISTImage.SIZE; i++)
+                for (int threshold = thresholdStep - 1; threshold < 255; threshold += thresholdStep)
+                    features.add(new ThresholdFeature<>(i, threshold));
         }
         return features;
     }
 
     /**
-     *
-     * @param tree
-     * @param validationSet
+     * Function to build a tree over the precomputed features if there are, or else over the data set itself
+     * @param features
+     * @param featureMatrix - the precomputed features, or null
+     * @param dataSet
+     * @param treeSize
+     * @param trainingOptions
      * @return
      */
-    private static int calcError(DecisionTree<MNISTImage> tree, DataSet<MNISTImage> validationSet){
-        int size = validationSet.size();
-        int errorCount = 0;
-        for(DataSetEntry<MNISTImage> entry : validationSet){
-            if(!(tree.predict(entry.getObject()).equals(entry.getLabel())))
-                errorCount++;
+    private static DecisionTree<MNISTImage> buildTree(Collection<Predicate<MNISTImage>> features,
+                                                      FeatureMatrix<MNISTImage> featureMatrix,
+                                                      DataSet<MNISTImage> dataSet,
+                                                      int treeSize,
+                                                      TrainingOptions trainingOptions){
+        List<DecisionTree<MNISTImage>> trees = featureMatrix != null ?
+                DecisionTree.buildTree(featureMatrix, dataSet, new int[] {treeSize}, trainingOptions) :
+                DecisionTree.buildTree(features, dataSet, new int[] {treeSize}, trainingOptions);
+        return trees.get(0);
+    }
+
+    /**
+     * Function to calculate the validation error of the forests of the candidate tree sizes
+     * Every forest is a snapshot of the given forest, whose trees have the maximal size
+     * @param forest - forest of trees of the maximal size
+     * @param validationSet
+     * @param maxTreeSize
+     * @param fineGrained - whether all sizes are candidates and not only powers of 2
+     * @return array whose k-th element is the number of entries mispredicted by the forest of trees of k splits,
+     *         or -1 if k is not a candidate size
+     */
+    private static int[] forestErrorCurve(RandomForest<MNISTImage> forest, DataSet<MNISTImage> validationSet,
+                                          int maxTreeSize, boolean fineGrained){
+        List<MNISTImage> images = new ArrayList<>(validationSet.size());
+        List<String> labels = new ArrayList<>(validationSet.size());
+        for (DataSetEntry<MNISTImage> entry : validationSet) {
+            images.add(entry.getObject());
+            labels.add(entry.getLabel());
+        }
+        int[] errorCurve = new int[maxTreeSize + 1];
+        Arrays.fill(errorCurve, -1);
+        for (int treeSize = 1; treeSize <= maxTreeSize; treeSize = fineGrained ? treeSize + 1 : treeSize * 2) {
+            String[] predicted = forest.snapshot(treeSize).predictAll(images);
+            errorCurve[treeSize] = 0;
+            for (int i = 0; i < predicted.length; i++)
+                if (!Objects.equals(predicted[i], labels.get(i)))
+                    errorCurve[treeSize]++;
         }
+        return errorCurve;
+    }
+
+    /**
+     *
+     * @param errorCount
+     * @param size
+     * @return
+     */
+    private static int toPercentage(int errorCount, int size){
         return (int)((((double)errorCount)/size)*100+0.5);
     }
 
+    /**
+     * Function to return the number of bytes that can still be allocated on the heap
+     * @return number of bytes
+     */
+    private static long freeMemory(){
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    /**
+     * Method to write the validation error of every tree size as CSV lines of size,errors,error percentage
+     * Sizes whose error was not calculated are skipped
+     * @param filename
+     * @param errorCurve
+     * @param size
+     */
+    private static void writeErrorCurve(String filename, int[] errorCurve, int size) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(filename))) {
+            out.println("size,errors,error");
+            for (int treeSize = 0; treeSize < errorCurve.length; treeSize++)
+                if (errorCurve[treeSize] >= 0)
+                    out.println(treeSize + "," + errorCurve[treeSize] + "," + (100.0 * errorCurve[treeSize]) / size);
+        }
+    }
+
+    /**
+     *
+     * @param args
+     * @param from
+     * @param names - names of the allowed options
+     * @return
+     */
+    private static Map<String, String> parseOptions(String[] args, int from, Set<String> names){
+        Map<String, String> options = new HashMap<>();
+        for (int i = from; i < args.length; i++) {
+            if (!args[i].startsWith("--"))
+                printErrorMessage();
+            int separator = args[i].indexOf('=');
+            String name = separator < 0 ? args[i].substring(2) : args[i].substring(2, separator);
+            if (!names.contains(name))
+                printErrorMessage();
+            options.put(name, separator < 0 ? "" : args[i].substring(separator + 1));
+        }
+        return options;
+    }
+
     /**
      *
      * @param version
      * @param precentage
      */
     private static void validationCheck(int version, double precentage, int maxPow){
-        if ((version != 1 && version != 2) || (precentage < 0 || precentage > 100) || maxPow < 0)
+        if ((version != 1 && version != 2) || (precentage < 0 || precentage > 100) || maxPow < 0 || maxPow > 30)
             printErrorMessage();
     }
 
@@ -129,7 +520,34 @@ public class Main {
      */
     private static void printErrorMessage(){
         System.err.println("Invalid input arguments\n" +
-                "usage: learntree <1/2> <P> <L> <trainingset_filename> <outputtree_filename>");
+                "usage: learntree <1/2> <P> <L> <trainingset_filename> <outputtree_filename> [options]\n" +
+                "       learntree update <1/2> <tree_filename> <batch_filename> <outputtree_filename> " +
+                "[update options]\n" +
+                "options:\n" +
+                "  --fine-grained          choose the tree size among all sizes up to 2^L\n" +
+                "  --error-curve=<file>    write the validation error of every tree size to a CSV file\n" +
+                "  --seed=<n>              seed of the validation split\n" +
+                "  --stratified            keep the proportions of the labels in the validation split\n" +
+                "  --folds=<k>             choose the tree size by k-fold cross validation, P is ignored\n" +
+                "  --threads=<n>           number of threads to train on\n" +
+                "  --memory-budget=<MB>    memory that concurrent cross validation runs may allocate\n" +
+                "  --trees=<n>             train a random forest of n trees, not with --folds\n" +
+                "  --feature-percentage=<p> percentage of the pixels every tree of a forest is trained on\n" +
+                "  --log                   write the duration of every phase and every training split to stderr\n" +
+                "  --metrics=<file>        write the duration of every phase and every training split as JSON lines\n" +
+                "  --checkpoint=<file>     periodically save the training runs to <file>.training and <file>.final,\n" +
+                "                          requires --seed, not with --folds or --trees\n" +
+                "  --checkpoint-interval=<s> seconds between two checkpoints (default 60)\n" +
+                "  --resume                continue the training runs from their checkpoints\n" +
+                "  --threshold-step=<n>    gray levels between the version 2 thresholds of a pixel (default 1),\n" +
+                "                          a larger step trains faster and less accurately\n" +
+                "update options:\n" +
+                "  --min-samples=<n>       new images which must reach a leaf to split it (default 200)\n" +
+                "  --max-splits=<n>        maximal number of splits to grow\n" +
+                "  --tie-threshold=<x>     gain difference under which splits tie (default 0.05), a large value\n" +
+                "                          grows the best gain leaves up to --max-splits without the Hoeffding bound\n" +
+                "  --threads=<n>           number of threads to search splits on\n" +
+                "  --threshold-step=<n>    gray levels between the version 2 thresholds of new splits (default 1)");
         exit(-1);
     }
 }
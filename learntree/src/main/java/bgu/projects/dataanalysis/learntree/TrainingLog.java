@@ -0,0 +1,87 @@
+package bgu.projects.dataanalysis.learntree;
+
+import bgu.projects.dataanalysis.learntree.api.IterationMetrics;
+import bgu.projects.dataanalysis.learntree.api.TrainingListener;
+
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Class to report the progress of a learntree run: the duration of its phases and the measurements
+ * of every training iteration, as a human readable log, as a JSON-lines file, or both
+ * Every JSON line is an object of either a phase, with "phase" and "millis" fields,
+ * or an iteration, with a "run" field and the fields of {@link IterationMetrics}
+ * The methods are synchronized, since concurrent training runs report to the same log
+ */
+class TrainingLog implements Closeable {
+
+    private final PrintStream human;
+    private final PrintWriter json;
+
+    /**
+     * Constructor
+     * @param human - stream to write the human readable log to, or null
+     * @param jsonFilename - file to write the JSON lines to, or null
+     * @throws IOException
+     */
+    TrainingLog(PrintStream human, String jsonFilename) throws IOException {
+        this.human = human;
+        this.json = jsonFilename == null ? null : new PrintWriter(new FileWriter(jsonFilename));
+    }
+
+    /**
+     * Method to report the duration of a phase of the run
+     * @param name - the name of the phase
+     * @param nanos - the duration in nanoseconds
+     */
+    synchronized void phase(String name, long nanos) {
+        double millis = nanos / 1e6;
+        if (human != null)
+            human.println(String.format(Locale.ROOT, "%s: %.1f ms", name, millis));
+        if (json != null)
+            json.println(String.format(Locale.ROOT, "{\"phase\":\"%s\",\"millis\":%.3f}", name, millis));
+    }
+
+    /**
+     * Function to create a listener which reports the iterations of a training run to this log
+     * @param run - the name of the run, which tags its iterations
+     * @return the listener
+     */
+    TrainingListener listener(String run) {
+        return metrics -> iteration(run, metrics);
+    }
+
+    private synchronized void iteration(String run, IterationMetrics metrics) {
+        if (human != null)
+            human.println(String.format(Locale.ROOT,
+                    "[%s] split %d: gain %.4f, leaf %d -> %d/%d, frontier %d, %d candidates, " +
+                            "search %.2f ms, frontier %.2f ms, partition %.2f ms, %s",
+                    run, metrics.getIteration(), metrics.getGain(), metrics.getLeafSize(), metrics.getFalseSize(),
+                    metrics.getTrueSize(), metrics.getFrontierSize(), metrics.getCandidatesScored(),
+                    metrics.getSplitSearchNanos() / 1e6, metrics.getFrontierNanos() / 1e6,
+                    metrics.getPartitionNanos() / 1e6,
+                    metrics.getAllocatedBytes() < 0 ? "allocation unknown" :
+                            (metrics.getAllocatedBytes() >> 10) + " KB allocated"));
+        if (json != null)
+            json.println(String.format(Locale.ROOT,
+                    "{\"run\":\"%s\",\"iteration\":%d,\"gain\":%s,\"leafSize\":%d,\"falseSize\":%d," +
+                            "\"trueSize\":%d,\"frontierSize\":%d,\"candidatesScored\":%d,\"splitSearchNanos\":%d," +
+                            "\"frontierNanos\":%d,\"partitionNanos\":%d,\"allocatedBytes\":%d}",
+                    run, metrics.getIteration(), metrics.getGain(), metrics.getLeafSize(), metrics.getFalseSize(),
+                    metrics.getTrueSize(), metrics.getFrontierSize(), metrics.getCandidatesScored(),
+                    metrics.getSplitSearchNanos(), metrics.getFrontierNanos(), metrics.getPartitionNanos(),
+                    metrics.getAllocatedBytes()));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (human != null)
+            human.flush();
+        if (json != null)
+            json.close();
+    }
+}
@@ -0,0 +1,292 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Immutable class that implements {@link DataSet} over columns of unsigned byte values,
+ * typically memory mapped from a file, so its entries are never all held on the heap
+ * Entries are decoded on the fly while iterating, a block of rows at a time, reading every column sequentially
+ * Data sets split from it are views which share its columns and only hold the indices of their rows
+ * Trees trained on it with {@link ThresholdFeature}s read the columns directly instead of decoding entries
+ * The columns are not serialized
+ * @param <T> - The class type, whose value at index c is the value of column c
+ */
+public class ByteColumnDataSet<T extends FeatureVector> implements DataSet<T> {
+
+    /**
+     * Interface to create the object of a row from its values
+     * @param <T> - The class type
+     */
+    @FunctionalInterface
+    public interface RowDecoder<T> {
+
+        /**
+         * Method to create the object of a row
+         * @param values - array which holds the row's values, one per column, from offset on
+         * @param offset - offset of the row's first value in the array
+         * @return object of the row, which may keep the array
+         */
+        T decode(byte[] values, int offset);
+    }
+
+    /**
+     * Number of rows decoded together while iterating
+     */
+    private static final int ROWS_PER_BLOCK = 1 << 12;
+
+    private final transient ByteBuffer[] columns;
+    private final transient ByteBuffer labelColumn;
+    private final transient RowDecoder<T> decoder;
+    private final LabelDictionary dictionary;
+    private final int numOfRows;
+    private final int[] indices;
+    private final int[] labelCounts;
+
+    /**
+     * Constructor of a data set over all the rows of the given columns
+     * @param columns - buffers of all the value columns, each holds one byte per row from index 0
+     * @param labelColumn - buffer which holds the label id byte of every row from index 0
+     * @param dictionary - dictionary of the label ids
+     * @param decoder - creator of the rows' objects
+     */
+    public ByteColumnDataSet(@NonNull ByteBuffer[] columns, @NonNull ByteBuffer labelColumn,
+                             @NonNull LabelDictionary dictionary, @NonNull RowDecoder<T> decoder) {
+        this.numOfRows = labelColumn.limit();
+        for (ByteBuffer column : columns)
+            if (column.limit() != numOfRows)
+                throw new IllegalArgumentException("ByteColumnDataSet: columns of different lengths");
+        this.columns = columns.clone();
+        this.labelColumn = labelColumn;
+        this.decoder = decoder;
+        this.dictionary = dictionary;
+        this.indices = null;
+        this.labelCounts = new int[dictionary.size()];
+        for (int row = 0; row < numOfRows; row++) {
+            int labelId = labelColumn.get(row) & 0xff;
+            if (labelId >= labelCounts.length)
+                throw new IllegalArgumentException("ByteColumnDataSet: label id out of dictionary");
+            labelCounts[labelId]++;
+        }
+    }
+
+    /**
+     * Function to copy a data set into columns on the heap, so trees of threshold features train on
+     * the copied columns, shared by all the data sets split from the copy
+     * @param dataSet - the data set, with at most 256 labels
+     * @param numOfColumns - number of values of every object, each between 0 and 255
+     * @param decoder - creator of the rows' objects
+     * @return data set over the copied columns
+     */
+    public static <T extends FeatureVector> ByteColumnDataSet<T> copyOf(@NonNull DataSet<T> dataSet, int numOfColumns,
+                                                                        @NonNull RowDecoder<T> decoder) {
+        LabelDictionary dictionary = dataSet.getLabelDictionary();
+        if (dictionary.size() > 256)
+            throw new IllegalArgumentException("ByteColumnDataSet: too many labels");
+        byte[][] values = new byte[numOfColumns][dataSet.size()];
+        byte[] labelIds = new byte[dataSet.size()];
+        int[] ids = dataSet.getLabelIds();
+        int row = 0;
+        for (DataSetEntry<T> entry : dataSet) {
+            T object = entry.getObject();
+            for (int c = 0; c < numOfColumns; c++) {
+                int value = object.getValue(c);
+                if (value < 0 || value > 255)
+                    throw new IllegalArgumentException("ByteColumnDataSet: value out of byte range");
+                values[c][row] = (byte) value;
+            }
+            labelIds[row] = (byte) ids[row];
+            row++;
+        }
+        ByteBuffer[] columns = new ByteBuffer[numOfColumns];
+        for (int c = 0; c < numOfColumns; c++)
+            columns[c] = ByteBuffer.wrap(values[c]);
+        return new ByteColumnDataSet<>(columns, ByteBuffer.wrap(labelIds), dictionary, decoder);
+    }
+
+    /**
+     * Constructor for a view over some of the rows of another data set
+     * @param parent - the data set that owns the columns
+     * @param indices - rows of the columns, in ascending order
+     */
+    private ByteColumnDataSet(ByteColumnDataSet<T> parent, int[] indices) {
+        this.columns = parent.columns;
+        this.labelColumn = parent.labelColumn;
+        this.decoder = parent.decoder;
+        this.dictionary = parent.dictionary;
+        this.numOfRows = parent.numOfRows;
+        this.indices = indices;
+        this.labelCounts = new int[dictionary.size()];
+        for (int row : indices)
+            labelCounts[labelColumn.get(row) & 0xff]++;
+    }
+
+    @Override
+    public Map<String, Long> getLabelCounts() {
+        return dictionary.toLabelCounts(labelCounts);
+    }
+
+    @Override
+    public String getMaxOccurrencesLabel() {
+        return dictionary.maxOccurrencesLabel(labelCounts);
+    }
+
+    @Override
+    public Set<String> getAllLabels() {
+        return dictionary.occurringLabels(labelCounts);
+    }
+
+    @Override
+    public LabelDictionary getLabelDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public int[] getLabelIds() {
+        int[] result = new int[size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = labelColumn.get(rowAt(i)) & 0xff;
+        return result;
+    }
+
+    @Override
+    public int[] getLabelIdCounts() {
+        return labelCounts.clone();
+    }
+
+    @Override
+    public Tuple2<DataSet<T>, DataSet<T>> splitByPercentage(int percentage, long seed) {
+        DataSetSplits.checkPercentage(percentage);
+        return views(DataSetSplits.split(size(), percentage, new Random(seed)));
+    }
+
+    @Override
+    public Tuple2<DataSet<T>, DataSet<T>> stratifiedSplitByPercentage(int percentage, long seed) {
+        DataSetSplits.checkPercentage(percentage);
+        return views(DataSetSplits.stratifiedSplit(getLabelIds(), dictionary.size(), percentage, new Random(seed)));
+    }
+
+    @Override
+    public List<Tuple2<DataSet<T>, DataSet<T>>> kFold(int k, long seed) {
+        DataSetSplits.checkNumOfFolds(k);
+        return foldViews(DataSetSplits.folds(size(), k, new Random(seed)), k);
+    }
+
+    @Override
+    public List<Tuple2<DataSet<T>, DataSet<T>>> stratifiedKFold(int k, long seed) {
+        DataSetSplits.checkNumOfFolds(k);
+        return foldViews(DataSetSplits.stratifiedFolds(getLabelIds(), dictionary.size(), k, new Random(seed)), k);
+    }
+
+    @Override
+    public int size() {
+        return indices == null ? numOfRows : indices.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Every block of rows is decoded into a new array shared by the block's objects
+     */
+    @Override
+    public Iterator<DataSetEntry<T>> iterator() {
+        return new Iterator<DataSetEntry<T>>() {
+            private final int numOfColumns = columns.length;
+            private byte[] block;
+            private int blockStart;
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public DataSetEntry<T> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                if (block == null || next - blockStart == ROWS_PER_BLOCK) {
+                    blockStart = next;
+                    int blockSize = Math.min(ROWS_PER_BLOCK, size() - blockStart);
+                    block = new byte[blockSize * numOfColumns];
+                    for (int c = 0; c < numOfColumns; c++) {
+                        ByteBuffer column = columns[c];
+                        for (int i = 0; i < blockSize; i++)
+                            block[i * numOfColumns + c] = column.get(rowAt(blockStart + i));
+                    }
+                }
+                int row = rowAt(next);
+                int offset = (next++ - blockStart) * numOfColumns;
+                return new DataSetEntry<>(dictionary.nameOf(labelColumn.get(row) & 0xff),
+                        decoder.decode(block, offset));
+            }
+        };
+    }
+
+    /**
+     * Method to return the number of value columns
+     * @return number of columns
+     */
+    public int numOfColumns() {
+        return columns.length;
+    }
+
+    /**
+     * Method to return the rows of this data set in its columns
+     * @return array of rows in ascending order
+     */
+    int[] getIndices() {
+        if (indices != null)
+            return indices.clone();
+        int[] result = new int[numOfRows];
+        for (int i = 0; i < result.length; i++)
+            result[i] = i;
+        return result;
+    }
+
+    /**
+     * Method to return the label id of every row of the columns, to train with {@link #asFeatureSource}
+     * @return array of label ids indexed by row
+     */
+    int[] getColumnLabelIds() {
+        int[] result = new int[numOfRows];
+        for (int row = 0; row < numOfRows; row++)
+            result[row] = labelColumn.get(row) & 0xff;
+        return result;
+    }
+
+    /**
+     * Method to create a feature source which tests threshold features directly on the columns
+     * Samples are referred to by their row in the columns, see {@link #getIndices()}
+     * @param features - the features
+     * @param <U> - The class type the features are declared for
+     * @return feature source, or null if some feature is not a {@link ThresholdFeature} of an existing column
+     */
+    <U> FeatureSource<U> asFeatureSource(List<Predicate<U>> features) {
+        return ThresholdFeatureSource.of(features, columns);
+    }
+
+    private int rowAt(int i) {
+        return indices == null ? i : indices[i];
+    }
+
+    private Tuple2<DataSet<T>, DataSet<T>> views(int[][] rows) {
+        return new Tuple2<>(view(rows[0]), view(rows[1]));
+    }
+
+    private List<Tuple2<DataSet<T>, DataSet<T>>> foldViews(int[] folds, int k) {
+        List<Tuple2<DataSet<T>, DataSet<T>>> result = new ArrayList<>(k);
+        for (int fold = 0; fold < k; fold++)
+            result.add(views(DataSetSplits.holdOut(folds, fold)));
+        return result;
+    }
+
+    private ByteColumnDataSet<T> view(int[] rows) {
+        if (indices != null)
+            for (int i = 0; i < rows.length; i++)
+                rows[i] = indices[rows[i]];
+        return new ByteColumnDataSet<>(this, rows);
+    }
+}
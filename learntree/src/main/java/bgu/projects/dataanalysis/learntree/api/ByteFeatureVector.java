@@ -0,0 +1,22 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+/**
+ * Interface to represent a {@link FeatureVector} whose values are unsigned bytes stored consecutively in an array,
+ * such as the pixels of an image, so code generated for a tree can read them directly
+ * (see {@link GeneratedDecisionTree})
+ */
+public interface ByteFeatureVector extends FeatureVector {
+
+    /**
+     * Method to return the array holding the values, which must not be modified
+     * The value at index i is {@code getValues()[getOffset() + i] & 0xff}, equal to {@link #getValue(int)}
+     * @return the array of the values, which may hold other vectors too
+     */
+    byte[] getValues();
+
+    /**
+     * Method to return the index of this vector's first value in {@link #getValues()}
+     * @return the offset
+     */
+    int getOffset();
+}
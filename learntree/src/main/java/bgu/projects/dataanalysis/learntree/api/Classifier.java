@@ -0,0 +1,36 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.util.List;
+
+/**
+ * Interface to represent a trained model which predicts the label of an object,
+ * such as a {@link DecisionTree} or a {@link RandomForest}
+ * @param <T> - The class type
+ */
+public interface Classifier<T> {
+
+    /**
+     * This method predicts the label of the given object
+     * @param toPredict - the object to predict it's matching label
+     * @return the label matching the given object
+     */
+    String predict(T toPredict);
+
+    /**
+     * This method predicts the labels of a batch of objects
+     * @param toPredict - the objects to predict their matching labels
+     * @return array of the labels matching the objects, in the objects' order
+     */
+    String[] predictAll(List<? extends T> toPredict);
+
+    /**
+     * Method to predict from now on by code generated for this model, where possible,
+     * instead of interpreting the model's structure
+     * Objects which are not {@link ByteFeatureVector}s are still predicted by the model's structure
+     * @return true if all of the model is predicted by generated code, false if some or all of it
+     *         could not be generated and is still interpreted
+     */
+    default boolean generateCode() {
+        return false;
+    }
+}
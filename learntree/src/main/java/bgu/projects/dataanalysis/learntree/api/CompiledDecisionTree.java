@@ -0,0 +1,376 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Immutable form of a {@link DecisionTree} whose features are all {@link ThresholdFeature}s
+ * The nodes are stored in parallel primitive arrays in pre-order, so the left (false) child of
+ * a feature node directly follows it and only the right (true) child's index is stored
+ * Prediction is a tight loop over the arrays, without allocation or virtual calls on the nodes
+ * @param <T> - The class type
+ */
+public class CompiledDecisionTree<T> {
+
+    /**
+     * Feature value index of every node, or -1 for a leaf
+     */
+    private final int[] valueIndices;
+    private final int[] thresholds;
+    private final int[] rightChildren;
+    /**
+     * Label id of every node, or -1 for a node without a label
+     * (the label of a feature node is the label it had as a leaf, before it was split)
+     */
+    private final int[] labels;
+    /**
+     * Growth order of every feature node, or 0 for a leaf
+     */
+    private final int[] orders;
+    /**
+     * Label counts of every node (see {@link DecisionTree.DecisionTreeNode#getLabelCounts()}) as pairs of
+     * label id and count in ascending label id order, or null if the tree has no statistics
+     */
+    private final int[][] labelCounts;
+    private final String[] labelNames;
+
+    CompiledDecisionTree(int[] valueIndices, int[] thresholds, int[] rightChildren, int[] labels, int[] orders,
+                         int[][] labelCounts, String[] labelNames) {
+        this.valueIndices = valueIndices;
+        this.thresholds = thresholds;
+        this.rightChildren = rightChildren;
+        this.labels = labels;
+        this.orders = orders;
+        this.labelCounts = labelCounts;
+        this.labelNames = labelNames;
+    }
+
+    /**
+     * Function to compile a tree
+     * Feature nodes beyond the number of splits the tree is a view of are compiled as leaves
+     * @param tree - the tree to compile
+     * @return the compiled tree, or null if the tree is empty or has a feature which is not a {@link ThresholdFeature}
+     */
+    static <T> CompiledDecisionTree<T> compile(DecisionTree<T> tree) {
+        if (tree.root == null)
+            return null;
+        List<DecisionTree.DecisionTreeNode<T>> nodes = new ArrayList<>();
+        SortedSet<String> labelSet = new TreeSet<>();
+        boolean withCounts = true;
+        Deque<DecisionTree.DecisionTreeNode<T>> stack = new ArrayDeque<>();
+        stack.push(tree.root);
+        while (!stack.isEmpty()) {
+            DecisionTree.DecisionTreeNode<T> node = stack.pop();
+            nodes.add(node);
+            if (node.getLabel() != null)
+                labelSet.add(node.getLabel());
+            if (node.getLabelCounts() == null)
+                withCounts = false;
+            else
+                labelSet.addAll(node.getLabelCounts().keySet());
+            if (!isLeaf(node, tree.numOfSplits)) {
+                DecisionTree.FeatureNode<T> featureNode = (DecisionTree.FeatureNode<T>) node;
+                if (!(featureNode.feature instanceof ThresholdFeature))
+                    return null;
+                stack.push(featureNode.right);
+                stack.push(featureNode.left);
+            }
+        }
+        String[] labelNames = labelSet.toArray(new String[0]);
+        Map<DecisionTree.DecisionTreeNode<T>, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++)
+            positions.put(nodes.get(i), i);
+        int[] valueIndices = new int[nodes.size()];
+        int[] thresholds = new int[nodes.size()];
+        int[] rightChildren = new int[nodes.size()];
+        int[] labels = new int[nodes.size()];
+        int[] orders = new int[nodes.size()];
+        int[][] labelCounts = withCounts ? new int[nodes.size()][] : null;
+        for (int i = 0; i < nodes.size(); i++) {
+            DecisionTree.DecisionTreeNode<T> node = nodes.get(i);
+            labels[i] = node.getLabel() == null ? -1 : Arrays.binarySearch(labelNames, node.getLabel());
+            if (withCounts)
+                labelCounts[i] = labelCountPairs(node.getLabelCounts(), labelNames);
+            if (isLeaf(node, tree.numOfSplits))
+                valueIndices[i] = -1;
+            else {
+                DecisionTree.FeatureNode<T> featureNode = (DecisionTree.FeatureNode<T>) node;
+                ThresholdFeature<?> feature = (ThresholdFeature<?>) featureNode.feature;
+                valueIndices[i] = feature.getIndex();
+                thresholds[i] = feature.getThreshold();
+                rightChildren[i] = positions.get(featureNode.right);
+                orders[i] = featureNode.order;
+            }
+        }
+        return new CompiledDecisionTree<>(valueIndices, thresholds, rightChildren, labels, orders, labelCounts,
+                labelNames);
+    }
+
+    private static int[] labelCountPairs(Map<String, Integer> counts, String[] labelNames) {
+        int[] pairs = new int[2 * counts.size()];
+        int i = 0;
+        for (int l = 0; l < labelNames.length; l++) {
+            Integer count = counts.get(labelNames[l]);
+            if (count != null) {
+                pairs[i++] = l;
+                pairs[i++] = count;
+            }
+        }
+        return pairs;
+    }
+
+    private static boolean isLeaf(DecisionTree.DecisionTreeNode<?> node, int numOfSplits) {
+        return node.isLeaf() || ((DecisionTree.FeatureNode<?>) node).order > numOfSplits;
+    }
+
+    /**
+     * Method to write this tree in binary form: the label dictionary followed by the node arrays
+     * (value indices, thresholds, right children, labels and growth orders), and the label counts:
+     * a flag of whether the tree has them, and if so every node's number of labels and its pairs
+     * of label id and count
+     * @param out - the output to write to
+     * @throws IOException
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(labelNames.length);
+        for (String label : labelNames) {
+            byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(valueIndices.length);
+        for (int[] column : new int[][] {valueIndices, thresholds, rightChildren, labels, orders})
+            for (int value : column)
+                out.writeInt(value);
+        out.writeInt(labelCounts == null ? 0 : 1);
+        if (labelCounts != null)
+            for (int[] pairs : labelCounts) {
+                out.writeInt(pairs.length / 2);
+                for (int value : pairs)
+                    out.writeInt(value);
+            }
+    }
+
+    /**
+     * Function to read a tree written by {@link #writeTo(DataOutput)}
+     * The node arrays are validated, so a malformed input can not create a tree whose prediction loops
+     * @param in - the buffer to read from, positioned at the tree
+     * @param withOrders - whether the input has the growth orders array, if not, the feature nodes
+     *                   are given growth orders by their pre-order
+     * @return the tree read
+     * @throws IllegalArgumentException if the input is not a valid tree
+     */
+    public static <T> CompiledDecisionTree<T> readFrom(ByteBuffer in, boolean withOrders) {
+        return readFrom(in, withOrders, false);
+    }
+
+    /**
+     * Function to read a tree written by {@link #writeTo(DataOutput)}, or by an older version of it
+     * The node arrays are validated, so a malformed input can not create a tree whose prediction loops
+     * @param in - the buffer to read from, positioned at the tree
+     * @param withOrders - whether the input has the growth orders array, if not, the feature nodes
+     *                   are given growth orders by their pre-order
+     * @param withCounts - whether the input has the label counts section, if not, the tree has no statistics
+     * @return the tree read
+     * @throws IllegalArgumentException if the input is not a valid tree
+     */
+    public static <T> CompiledDecisionTree<T> readFrom(ByteBuffer in, boolean withOrders, boolean withCounts) {
+        try {
+            String[] labelNames = new String[in.getInt()];
+            for (int i = 0; i < labelNames.length; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                labelNames[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int size = in.getInt();
+            if (size <= 0 || size > in.remaining() / (withOrders ? 20 : 16))
+                throw new IllegalArgumentException("CompiledDecisionTree: illegal number of nodes");
+            int[] valueIndices = new int[size];
+            int[] thresholds = new int[size];
+            int[] rightChildren = new int[size];
+            int[] labels = new int[size];
+            int[] orders = new int[size];
+            int[][] columns = withOrders ?
+                    new int[][] {valueIndices, thresholds, rightChildren, labels, orders} :
+                    new int[][] {valueIndices, thresholds, rightChildren, labels};
+            for (int[] column : columns) {
+                in.asIntBuffer().get(column);
+                in.position(in.position() + 4 * size);
+            }
+            checkNodes(valueIndices, rightChildren, labels, orders, labelNames.length, withOrders);
+            int[][] labelCounts = withCounts && in.getInt() != 0 ? new int[size][] : null;
+            if (labelCounts != null)
+                for (int i = 0; i < size; i++) {
+                    int numOfCounts = in.getInt();
+                    if (numOfCounts < 0 || numOfCounts > labelNames.length)
+                        throw new IllegalArgumentException("CompiledDecisionTree: illegal label counts of node " + i);
+                    labelCounts[i] = new int[2 * numOfCounts];
+                    in.asIntBuffer().get(labelCounts[i]);
+                    in.position(in.position() + 8 * numOfCounts);
+                    for (int c = 0; c < numOfCounts; c++) {
+                        int labelId = labelCounts[i][2 * c];
+                        if (labelId < 0 || labelId >= labelNames.length || labelCounts[i][2 * c + 1] <= 0 ||
+                                (c > 0 && labelId <= labelCounts[i][2 * c - 2]))
+                            throw new IllegalArgumentException("CompiledDecisionTree: illegal label counts of node "
+                                    + i);
+                    }
+                }
+            return new CompiledDecisionTree<>(valueIndices, thresholds, rightChildren, labels, orders, labelCounts,
+                    labelNames);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("CompiledDecisionTree: truncated input", e);
+        }
+    }
+
+    /**
+     * Function to create a tree of given node arrays, in the pre-order layout of this class
+     * The feature nodes are given growth orders by their pre-order, and the tree has no statistics
+     * @param valueIndices - feature value index of every node, or -1 for a leaf
+     * @param thresholds - threshold of every feature node
+     * @param rightChildren - index of the right (true) child of every feature node
+     * @param labels - label id of every node, or -1 for a node without a label
+     * @param labelNames - the labels, indexed by label id
+     * @return the tree of the arrays, which it owns from now on
+     * @throws IllegalArgumentException if the arrays are not a valid tree
+     */
+    public static <T> CompiledDecisionTree<T> of(int[] valueIndices, int[] thresholds, int[] rightChildren,
+                                                 int[] labels, String[] labelNames) {
+        int size = valueIndices.length;
+        if (size == 0 || thresholds.length != size || rightChildren.length != size || labels.length != size)
+            throw new IllegalArgumentException("CompiledDecisionTree: illegal number of nodes");
+        int[] orders = new int[size];
+        checkNodes(valueIndices, rightChildren, labels, orders, labelNames.length, false);
+        return new CompiledDecisionTree<>(valueIndices, thresholds, rightChildren, labels, orders, null, labelNames);
+    }
+
+    /**
+     * Function to validate the node arrays of a tree, so its prediction can not loop, and to set
+     * the growth orders of its leaves to 0, and of its feature nodes to their pre-order if it has none
+     */
+    private static void checkNodes(int[] valueIndices, int[] rightChildren, int[] labels, int[] orders,
+                                   int numOfLabels, boolean withOrders) {
+        int size = valueIndices.length;
+        int numOfFeatureNodes = 0;
+        for (int i = 0; i < size; i++) {
+            boolean validNode = labels[i] >= -1 && labels[i] < numOfLabels && (valueIndices[i] < 0 ||
+                    (i + 1 < size && rightChildren[i] > i + 1 && rightChildren[i] < size));
+            if (!validNode)
+                throw new IllegalArgumentException("CompiledDecisionTree: illegal node " + i);
+            if (valueIndices[i] < 0)
+                orders[i] = 0;
+            else if (!withOrders)
+                orders[i] = ++numOfFeatureNodes;
+        }
+    }
+
+    /**
+     * Method to return the equivalent linked tree of {@link ThresholdFeature}s
+     * @return a tree predicting like this tree
+     */
+    public DecisionTree<T> toDecisionTree() {
+        DecisionTree.DecisionTreeNode<T>[] nodes = newNodeArray(size());
+        for (int i = size() - 1; i >= 0; i--) {
+            String label = labels[i] < 0 ? null : labelNames[labels[i]];
+            Map<String, Integer> counts = labelCounts == null ? null : labelCountsOf(i);
+            if (valueIndices[i] < 0) {
+                DecisionTree.LabelNode<T> leaf = new DecisionTree.LabelNode<>();
+                leaf.label = label;
+                leaf.labelCounts = counts;
+                nodes[i] = leaf;
+            }
+            else {
+                DecisionTree.FeatureNode<T> featureNode = new DecisionTree.FeatureNode<>();
+                featureNode.feature = thresholdFeature(valueIndices[i], thresholds[i]);
+                featureNode.label = label;
+                featureNode.labelCounts = counts;
+                featureNode.order = orders[i];
+                featureNode.left = nodes[i + 1];
+                featureNode.right = nodes[rightChildren[i]];
+                setParent(featureNode.left, featureNode);
+                setParent(featureNode.right, featureNode);
+                nodes[i] = featureNode;
+            }
+        }
+        return DecisionTree.of(nodes[0], this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> DecisionTree.DecisionTreeNode<T>[] newNodeArray(int size) {
+        // the array is only local to toDecisionTree, which stores nodes of type T in it
+        return (DecisionTree.DecisionTreeNode<T>[]) new DecisionTree.DecisionTreeNode<?>[size];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Predicate<T> thresholdFeature(int valueIndex, int threshold) {
+        // a compiled tree is only created from a tree of ThresholdFeatures or read from a file written from one,
+        // so the objects it is predicted on are FeatureVectors
+        return (Predicate<T>) (Predicate<?>) new ThresholdFeature<FeatureVector>(valueIndex, threshold);
+    }
+
+    private Map<String, Integer> labelCountsOf(int node) {
+        int[] pairs = labelCounts[node];
+        Map<String, Integer> counts = new HashMap<>();
+        for (int c = 0; c < pairs.length; c += 2)
+            counts.put(labelNames[pairs[c]], pairs[c + 1]);
+        return counts;
+    }
+
+    private static <T> void setParent(DecisionTree.DecisionTreeNode<T> node, DecisionTree.FeatureNode<T> parent) {
+        if (node.isLeaf())
+            ((DecisionTree.LabelNode<T>) node).parent = parent;
+        else
+            ((DecisionTree.FeatureNode<T>) node).parent = parent;
+    }
+
+    /**
+     * This method predicts the label id of the given object
+     * @param toPredict - the object to predict it's matching label
+     * @return the id of the label matching the given object, an index of {@link #getLabelNames()}, or -1
+     */
+    public int predictLabelId(FeatureVector toPredict) {
+        int node = 0;
+        int valueIndex;
+        while ((valueIndex = valueIndices[node]) >= 0)
+            node = toPredict.getValue(valueIndex) > thresholds[node] ? rightChildren[node] : node + 1;
+        return labels[node];
+    }
+
+    /**
+     * This method predicts the label of the given object
+     * @param toPredict - the object to predict it's matching label
+     * @return the label matching the given object
+     */
+    public String predict(FeatureVector toPredict) {
+        int label = predictLabelId(toPredict);
+        return label < 0 ? null : labelNames[label];
+    }
+
+    /**
+     * Function to generate the code of this tree, see {@link GeneratedDecisionTree}
+     * @return the generated tree, or null if this tree is too large to generate
+     */
+    GeneratedDecisionTree generate() {
+        return TreeClassGenerator.generate(valueIndices, thresholds, rightChildren, labels, labelNames);
+    }
+
+    /**
+     * Method to return the labels of this tree, indexed by label id
+     * @return a copy of the label names
+     */
+    public String[] getLabelNames() {
+        return labelNames.clone();
+    }
+
+    /**
+     * Method to return the number of nodes of this tree
+     * @return number of nodes
+     */
+    public int size() {
+        return valueIndices.length;
+    }
+}
@@ -0,0 +1,120 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Class to choose the size of a {@link DecisionTree} by k-fold cross validation
+ * The trees of all folds and the tree of the whole data set are trained over the same features,
+ * precomputed once in a {@link FeatureMatrix} or read from a {@link ByteColumnDataSet},
+ * concurrently in the pool of the {@link TrainingOptions},
+ * with as many concurrent training runs as the memory budget allows, none of which is checkpointed
+ */
+public class CrossValidation {
+
+    private CrossValidation() {
+    }
+
+    /**
+     * Function to run k-fold cross validation over precomputed features
+     * @param featureMatrix - the precomputed features of the data set
+     * @param dataSet - the data set the matrix was built from
+     * @param folds - tuples of the validation and training set of every fold
+     * @param maxTreeSize - maximal number of splits of the trees
+     * @param options - training settings
+     * @param memoryBudget - number of bytes the concurrent training runs may allocate
+     * @return tuple of:
+     * The tree of the whole data set, grown up to {@param maxTreeSize} splits,
+     * whose snapshots are the final trees of every size
+     * Array whose k-th element is the number of validation entries mispredicted by the trees of k splits,
+     * summed over all folds, for k from 0 to {@param maxTreeSize}
+     */
+    public static <T> Tuple2<DecisionTree<T>, int[]> validate(@NonNull FeatureMatrix<T> featureMatrix,
+                                                             @NonNull DataSet<T> dataSet,
+                                                             @NonNull List<Tuple2<DataSet<T>, DataSet<T>>> folds,
+                                                             int maxTreeSize,
+                                                             @NonNull TrainingOptions options,
+                                                             long memoryBudget) {
+        return validate(trainingSet -> DecisionTree.buildTree(featureMatrix, trainingSet, new int[] {maxTreeSize},
+                options.withoutCheckpoint()).get(0), dataSet, folds, maxTreeSize, options, memoryBudget, 0);
+    }
+
+    /**
+     * Function to run k-fold cross validation, testing the features on the data sets
+     * @param features - A collection of predicate objects which have a boolean testing method
+     * @param dataSet - the data set
+     * @param folds - tuples of the validation and training set of every fold
+     * @param maxTreeSize - maximal number of splits of the trees
+     * @param options - training settings
+     * @param memoryBudget - number of bytes the concurrent training runs may allocate
+     * @return tuple as described in {@link #validate(FeatureMatrix, DataSet, List, int, TrainingOptions, long)}
+     */
+    public static <T> Tuple2<DecisionTree<T>, int[]> validate(@NonNull Collection<Predicate<T>> features,
+                                                             @NonNull DataSet<T> dataSet,
+                                                             @NonNull List<Tuple2<DataSet<T>, DataSet<T>>> folds,
+                                                             int maxTreeSize,
+                                                             @NonNull TrainingOptions options,
+                                                             long memoryBudget) {
+        return validate(trainingSet -> DecisionTree.buildTree(features, trainingSet, new int[] {maxTreeSize},
+                options.withoutCheckpoint()).get(0), dataSet, folds, maxTreeSize, options, memoryBudget,
+                ThresholdFeatureSource.boundBytesPerRow(features));
+    }
+
+    private static <T> Tuple2<DecisionTree<T>, int[]> validate(Function<DataSet<T>, DecisionTree<T>> train,
+                                                              DataSet<T> dataSet,
+                                                              List<Tuple2<DataSet<T>, DataSet<T>>> folds,
+                                                              int maxTreeSize,
+                                                              TrainingOptions options,
+                                                              long memoryBudget,
+                                                              long boundBytesPerSample) {
+        int[] errorCurve = new int[maxTreeSize + 1];
+        List<DecisionTree<T>> tree = new ArrayList<>(1);
+        List<Runnable> runs = new ArrayList<>();
+        // the largest run goes first
+        runs.add(() -> tree.add(train.apply(dataSet)));
+        for (Tuple2<DataSet<T>, DataSet<T>> fold : folds)
+            runs.add(() -> {
+                int[] foldCurve = train.apply(fold.getT2()).errorCurve(fold.getT1());
+                synchronized (errorCurve) {
+                    for (int k = 0; k < errorCurve.length; k++)
+                        errorCurve[k] += foldCurve[Math.min(k, foldCurve.length - 1)];
+                }
+            });
+        long runMemory = TreeBuilder.estimateMemory(dataSet.size(), dataSet.getLabelDictionary().size(),
+                maxTreeSize, boundBytesPerSample);
+        int numOfLanes = (int) Math.max(1, Math.min(runs.size(), memoryBudget / runMemory));
+        runInLanes(runs, numOfLanes, options.getPool());
+        return new Tuple2<>(tree.get(0), errorCurve);
+    }
+
+    /**
+     * Function to run tasks such that at most a given number of them run at the same time
+     * Every lane runs its tasks one after the other, and the lanes run concurrently in the pool
+     * @param runs - the tasks
+     * @param numOfLanes - maximal number of concurrent tasks
+     * @param pool - the pool to run in, or null to run all tasks on the calling thread
+     */
+    private static void runInLanes(List<Runnable> runs, int numOfLanes, ForkJoinPool pool) {
+        if (pool == null || numOfLanes == 1) {
+            runs.forEach(Runnable::run);
+            return;
+        }
+        List<ForkJoinTask<?>> lanes = new ArrayList<>(numOfLanes);
+        for (int lane = 0; lane < numOfLanes; lane++) {
+            int first = lane;
+            lanes.add(pool.submit(() -> {
+                for (int run = first; run < runs.size(); run += numOfLanes)
+                    runs.get(run).run();
+            }));
+        }
+        for (ForkJoinTask<?> lane : lanes)
+            lane.join();
+    }
+}
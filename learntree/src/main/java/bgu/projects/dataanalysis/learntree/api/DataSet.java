@@ -1,8 +1,10 @@
 package bgu.projects.dataanalysis.learntree.api;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Interface to represent a data set used by {@link DecisionTree}
@@ -29,6 +31,38 @@ public interface DataSet<T> extends Iterable<DataSetEntry<T>>, Serializable {
      */
     Set<String> getAllLabels();
 
+    /**
+     * Method to return the dictionary that gives the labels of this data set their ids
+     * @return label dictionary
+     */
+    default LabelDictionary getLabelDictionary() {
+        return LabelDictionary.of(getAllLabels());
+    }
+
+    /**
+     * Method to return the label id of every entry in this data set, in iteration order
+     * @return array of ids given by {@link #getLabelDictionary()}
+     */
+    default int[] getLabelIds() {
+        LabelDictionary dictionary = getLabelDictionary();
+        int[] labelIds = new int[size()];
+        int i = 0;
+        for (DataSetEntry<T> entry : this)
+            labelIds[i++] = dictionary.idOf(entry.getLabel());
+        return labelIds;
+    }
+
+    /**
+     * Method to return the number of occurrences of every label id in this data set
+     * @return array of counts indexed by the ids given by {@link #getLabelDictionary()}
+     */
+    default int[] getLabelIdCounts() {
+        int[] counts = new int[getLabelDictionary().size()];
+        for (int labelId : getLabelIds())
+            counts[labelId]++;
+        return counts;
+    }
+
     /**
      * Method to immutably split this data set into 2 data sets according to a given percentage
      * @param percentage - An integer with values between 0 and 100
@@ -36,7 +70,48 @@ public interface DataSet<T> extends Iterable<DataSetEntry<T>>, Serializable {
      * The first contains {@param percentage} percent of this data set entries
      * The second contains the difference of this data set's entries and the first split's entries
      */
-    Tuple2<DataSet<T>, DataSet<T>> splitByPercentage(int percentage);
+    default Tuple2<DataSet<T>, DataSet<T>> splitByPercentage(int percentage) {
+        return splitByPercentage(percentage, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Method to immutably split this data set into 2 data sets according to a given percentage,
+     * reproducibly for a given seed
+     * @param percentage - An integer with values between 0 and 100
+     * @param seed - seed of the random choice of entries
+     * @return A tuple of 2 splits of this data set as described in {@link #splitByPercentage(int)}
+     */
+    Tuple2<DataSet<T>, DataSet<T>> splitByPercentage(int percentage, long seed);
+
+    /**
+     * Method to immutably split this data set into 2 data sets according to a given percentage,
+     * such that both splits keep the proportions of the labels of this data set
+     * @param percentage - An integer with values between 0 and 100
+     * @param seed - seed of the random choice of entries
+     * @return A tuple of 2 splits of this data set such that:
+     * The first contains {@param percentage} percent of this data set entries of every label, rounded
+     * The second contains the difference of this data set's entries and the first split's entries
+     */
+    Tuple2<DataSet<T>, DataSet<T>> stratifiedSplitByPercentage(int percentage, long seed);
+
+    /**
+     * Method to immutably partition this data set into k folds for cross validation
+     * @param k - number of folds, at least 2
+     * @param seed - seed of the random partition
+     * @return list of k tuples, one per fold, such that:
+     * The first element contains the entries of the fold
+     * The second element contains the entries of all the other folds
+     */
+    List<Tuple2<DataSet<T>, DataSet<T>>> kFold(int k, long seed);
+
+    /**
+     * Method to immutably partition this data set into k folds for cross validation,
+     * such that every fold keeps the proportions of the labels of this data set
+     * @param k - number of folds, at least 2
+     * @param seed - seed of the random partition
+     * @return list of k tuples as described in {@link #kFold(int, long)}
+     */
+    List<Tuple2<DataSet<T>, DataSet<T>>> stratifiedKFold(int k, long seed);
 
     /**
      * Method to return the size of this data set
@@ -1,68 +1,188 @@
 package bgu.projects.dataanalysis.learntree.api;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * Immutable class that implements {@link DataSet}
+ * Labels are encoded once, when the data set is created, by a {@link LabelDictionary}
+ * Data sets split from it are views: they share its entries, label ids and dictionary
+ * and only hold the indices of their own entries
  * @param <T> - The class type
  */
 public class DataSetImpl<T> implements DataSet<T> {
 
     private List<DataSetEntry<T>> dataSet;
-    private Set<String> labels;
+    private LabelDictionary dictionary;
+    private int[] labelIds;
+    private int[] indices;
+    private int[] labelCounts;
 
     public DataSetImpl(Collection<DataSetEntry<T>> dataSet) {
         this.dataSet = new ArrayList<>(dataSet);
-        this.labels = dataSet.parallelStream()
-                .map(DataSetEntry::getLabel)
-                .collect(Collectors.toSet());
+        Set<String> labels = new HashSet<>();
+        for (DataSetEntry<T> entry : this.dataSet)
+            labels.add(entry.getLabel());
+        this.dictionary = LabelDictionary.of(labels);
+        this.labelIds = new int[this.dataSet.size()];
+        for (int i = 0; i < labelIds.length; i++)
+            labelIds[i] = dictionary.idOf(this.dataSet.get(i).getLabel());
+        this.labelCounts = countLabels(labelIds, dictionary.size());
+    }
+
+    /**
+     * Constructor for a view over some of the entries of another data set
+     * @param parent - the data set that owns the entries
+     * @param indices - indices of the entries in the parent's entries, in ascending order
+     */
+    private DataSetImpl(DataSetImpl<T> parent, int[] indices) {
+        this.dataSet = parent.dataSet;
+        this.dictionary = parent.dictionary;
+        this.labelIds = parent.labelIds;
+        this.indices = indices;
+        this.labelCounts = new int[dictionary.size()];
+        for (int index : indices)
+            labelCounts[labelIds[index]]++;
     }
 
     @Override
     public Map<String, Long> getLabelCounts() {
-        return this.dataSet.parallelStream()
-                .map(DataSetEntry::getLabel)
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        return dictionary.toLabelCounts(labelCounts);
     }
 
     @Override
     public String getMaxOccurrencesLabel() {
-        return getLabelCounts()
-                .entrySet()
-                .stream()
-                .max(Comparator.comparing(Map.Entry::getValue))
-                .map(Map.Entry::getKey)
-                .orElse(null);
+        return dictionary.maxOccurrencesLabel(labelCounts);
     }
 
     @Override
     public Set<String> getAllLabels() {
-        return Collections.unmodifiableSet(this.labels);
+        return dictionary.occurringLabels(labelCounts);
+    }
+
+    @Override
+    public LabelDictionary getLabelDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public int[] getLabelIds() {
+        if (indices == null)
+            return labelIds.clone();
+        int[] result = new int[indices.length];
+        for (int i = 0; i < indices.length; i++)
+            result[i] = labelIds[indices[i]];
+        return result;
+    }
+
+    @Override
+    public int[] getLabelIdCounts() {
+        return labelCounts.clone();
+    }
+
+    @Override
+    public Tuple2<DataSet<T>, DataSet<T>> splitByPercentage(int percentage, long seed){
+        DataSetSplits.checkPercentage(percentage);
+        return views(DataSetSplits.split(size(), percentage, new Random(seed)));
+    }
+
+    @Override
+    public Tuple2<DataSet<T>, DataSet<T>> stratifiedSplitByPercentage(int percentage, long seed){
+        DataSetSplits.checkPercentage(percentage);
+        return views(DataSetSplits.stratifiedSplit(getLabelIds(), dictionary.size(), percentage, new Random(seed)));
     }
 
     @Override
-    public Tuple2<DataSet<T>, DataSet<T>> splitByPercentage(int percentage){
-        if(percentage < 0 || percentage > 100)
-            throw new IllegalArgumentException("Percentage: not a legal value");
-        int numOfElements = (percentage * size()) / 100;
-        List<DataSetEntry<T>> firstSplit = new ArrayList<>();
-        List<DataSetEntry<T>> secondSplit = new ArrayList<>(this.dataSet);
-        for (int i = 0; i < numOfElements; i++) {
-            int randIdx = (int)(Math.random() * secondSplit.size());
-            firstSplit.add(secondSplit.remove(randIdx));
-        }
-        return new Tuple2<>(new DataSetImpl<>(firstSplit), new DataSetImpl<>(secondSplit));
+    public List<Tuple2<DataSet<T>, DataSet<T>>> kFold(int k, long seed){
+        DataSetSplits.checkNumOfFolds(k);
+        return foldViews(DataSetSplits.folds(size(), k, new Random(seed)), k);
+    }
+
+    @Override
+    public List<Tuple2<DataSet<T>, DataSet<T>>> stratifiedKFold(int k, long seed){
+        DataSetSplits.checkNumOfFolds(k);
+        return foldViews(DataSetSplits.stratifiedFolds(getLabelIds(), dictionary.size(), k, new Random(seed)), k);
     }
 
     @Override
     public int size() {
-        return this.dataSet.size();
+        return indices == null ? this.dataSet.size() : indices.length;
     }
 
     @Override
     public Iterator<DataSetEntry<T>> iterator() {
-        return this.dataSet.iterator();
+        if (indices == null)
+            return Collections.unmodifiableList(this.dataSet).iterator();
+        return new Iterator<DataSetEntry<T>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < indices.length;
+            }
+
+            @Override
+            public DataSetEntry<T> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return dataSet.get(indices[next++]);
+            }
+        };
+    }
+
+    /**
+     * Method to return the entries this data set is a view over
+     * @return the entries, shared by all the data sets split from the same data set
+     */
+    List<DataSetEntry<T>> getEntries() {
+        return dataSet;
+    }
+
+    /**
+     * Method to return the indices of this data set's entries in {@link #getEntries()}
+     * @return array of indices in ascending order
+     */
+    int[] getIndices() {
+        if (indices != null)
+            return indices.clone();
+        int[] result = new int[dataSet.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = i;
+        return result;
+    }
+
+    /**
+     * Method to create views over this data set from rows of it
+     * @param rows - two arrays of rows of this data set, in ascending order
+     * @return tuple of the views
+     */
+    private Tuple2<DataSet<T>, DataSet<T>> views(int[][] rows) {
+        return new Tuple2<>(view(rows[0]), view(rows[1]));
+    }
+
+    private List<Tuple2<DataSet<T>, DataSet<T>>> foldViews(int[] folds, int k) {
+        List<Tuple2<DataSet<T>, DataSet<T>>> result = new ArrayList<>(k);
+        for (int fold = 0; fold < k; fold++)
+            result.add(views(DataSetSplits.holdOut(folds, fold)));
+        return result;
+    }
+
+    private DataSetImpl<T> view(int[] rows) {
+        if (indices != null)
+            for (int i = 0; i < rows.length; i++)
+                rows[i] = indices[rows[i]];
+        return new DataSetImpl<>(this, rows);
+    }
+
+    /**
+     * Function to count the occurrences of every label id
+     * @param labelIds - label ids
+     * @param numOfLabels - number of different ids
+     * @return array of counts indexed by label id
+     */
+    private static int[] countLabels(int[] labelIds, int numOfLabels) {
+        int[] counts = new int[numOfLabels];
+        for (int labelId : labelIds)
+            counts[labelId]++;
+        return counts;
     }
 }
@@ -0,0 +1,181 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.util.Random;
+
+/**
+ * Functions to randomly partition the rows of a data set in linear time
+ * Rows are the positions of the entries in the data set, and every returned set
+ * of rows is in ascending order, so a partition keeps the order of the data set
+ */
+final class DataSetSplits {
+
+    private DataSetSplits() {
+    }
+
+    /**
+     * Function to choose a percentage of the rows uniformly at random, by selection sampling
+     * @param size - number of rows
+     * @param percentage - An integer with values between 0 and 100
+     * @param random - source of randomness
+     * @return the chosen rows and the rest of the rows
+     */
+    static int[][] split(int size, int percentage, Random random) {
+        int numOfChosen = (int) (((long) percentage * size) / 100);
+        int[] chosen = new int[numOfChosen];
+        int[] rest = new int[size - numOfChosen];
+        int c = 0;
+        int r = 0;
+        for (int row = 0; row < size; row++) {
+            if (random.nextInt(size - row) < numOfChosen - c)
+                chosen[c++] = row;
+            else
+                rest[r++] = row;
+        }
+        return new int[][] {chosen, rest};
+    }
+
+    /**
+     * Function to choose a percentage of the rows of every label uniformly at random, by selection sampling
+     * The number of chosen rows of every label is rounded to the nearest integer
+     * @param labelIds - label id of every row
+     * @param numOfLabels - number of different label ids
+     * @param percentage - An integer with values between 0 and 100
+     * @param random - source of randomness
+     * @return the chosen rows and the rest of the rows
+     */
+    static int[][] stratifiedSplit(int[] labelIds, int numOfLabels, int percentage, Random random) {
+        int[] remaining = countLabels(labelIds, numOfLabels);
+        int[] needed = new int[numOfLabels];
+        int numOfChosen = 0;
+        for (int l = 0; l < numOfLabels; l++) {
+            needed[l] = (int) (((long) percentage * remaining[l] + 50) / 100);
+            numOfChosen += needed[l];
+        }
+        int[] chosen = new int[numOfChosen];
+        int[] rest = new int[labelIds.length - numOfChosen];
+        int c = 0;
+        int r = 0;
+        for (int row = 0; row < labelIds.length; row++) {
+            int label = labelIds[row];
+            if (random.nextInt(remaining[label]--) < needed[label]) {
+                needed[label]--;
+                chosen[c++] = row;
+            }
+            else
+                rest[r++] = row;
+        }
+        return new int[][] {chosen, rest};
+    }
+
+    /**
+     * Function to randomly assign every row to one of k folds of equal size (up to one row)
+     * @param size - number of rows
+     * @param k - number of folds
+     * @param random - source of randomness
+     * @return the fold of every row
+     */
+    static int[] folds(int size, int k, Random random) {
+        int[] permutation = permutation(size, random);
+        int[] folds = new int[size];
+        for (int i = 0; i < size; i++)
+            folds[permutation[i]] = i % k;
+        return folds;
+    }
+
+    /**
+     * Function to randomly assign every row to one of k folds, such that the rows of every label
+     * are spread evenly over the folds and the folds are of equal size (up to one row)
+     * @param labelIds - label id of every row
+     * @param numOfLabels - number of different label ids
+     * @param k - number of folds
+     * @param random - source of randomness
+     * @return the fold of every row
+     */
+    static int[] stratifiedFolds(int[] labelIds, int numOfLabels, int k, Random random) {
+        int[] counts = countLabels(labelIds, numOfLabels);
+        // every label continues the round robin where the previous label stopped
+        int[] next = new int[numOfLabels];
+        for (int l = 1; l < numOfLabels; l++)
+            next[l] = (next[l - 1] + counts[l - 1]) % k;
+        int[] permutation = permutation(labelIds.length, random);
+        int[] folds = new int[labelIds.length];
+        for (int row : permutation) {
+            int label = labelIds[row];
+            folds[row] = next[label];
+            next[label] = (next[label] + 1) % k;
+        }
+        return folds;
+    }
+
+    /**
+     * Function to split the rows by one fold
+     * @param folds - the fold of every row
+     * @param fold - the fold to hold out
+     * @return the rows of the fold and the rest of the rows
+     */
+    static int[][] holdOut(int[] folds, int fold) {
+        int numOfHeldOut = 0;
+        for (int f : folds)
+            if (f == fold)
+                numOfHeldOut++;
+        int[] heldOut = new int[numOfHeldOut];
+        int[] rest = new int[folds.length - numOfHeldOut];
+        int h = 0;
+        int r = 0;
+        for (int row = 0; row < folds.length; row++) {
+            if (folds[row] == fold)
+                heldOut[h++] = row;
+            else
+                rest[r++] = row;
+        }
+        return new int[][] {heldOut, rest};
+    }
+
+    /**
+     * Function to draw a bootstrap sample: as many rows as there are, uniformly at random with replacement
+     * @param size - number of rows
+     * @param random - source of randomness
+     * @return the drawn rows, a row repeats as many times as it was drawn
+     */
+    static int[] bootstrap(int size, Random random) {
+        int[] counts = new int[size];
+        for (int i = 0; i < size; i++)
+            counts[random.nextInt(size)]++;
+        int[] sample = new int[size];
+        int s = 0;
+        for (int row = 0; row < size; row++)
+            for (int c = 0; c < counts[row]; c++)
+                sample[s++] = row;
+        return sample;
+    }
+
+    static void checkPercentage(int percentage) {
+        if(percentage < 0 || percentage > 100)
+            throw new IllegalArgumentException("Percentage: not a legal value");
+    }
+
+    static void checkNumOfFolds(int k) {
+        if(k < 2)
+            throw new IllegalArgumentException("Number of folds: not a legal value");
+    }
+
+    private static int[] permutation(int size, Random random) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++)
+            permutation[i] = i;
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+        return permutation;
+    }
+
+    private static int[] countLabels(int[] labelIds, int numOfLabels) {
+        int[] counts = new int[numOfLabels];
+        for (int labelId : labelIds)
+            counts[labelId]++;
+        return counts;
+    }
+}
@@ -6,20 +6,38 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 /**
  * Class that implements 'ID3' algorithm to build a decision tree classifier
+ * Every feature node records the iteration in which it was split (its growth order), so the tree after
+ * any number of splits is a lightweight view over the same nodes (see {@link #snapshot(int)})
  * @param <T> - The class type
  */
-public class DecisionTree<T> implements Serializable{
+public class DecisionTree<T> implements Classifier<T>, Serializable{
 
-    private DecisionTreeNode<T> root;
+    /**
+     * Minimal batch size for which {@link #predictAll(List)} runs in parallel
+     */
+    private static final int PARALLEL_PREDICTION_THRESHOLD = 1 << 10;
+
+    DecisionTreeNode<T> root;
+    /**
+     * Number of splits this tree is a view of, feature nodes of a later growth order act as leaves
+     */
+    int numOfSplits = Integer.MAX_VALUE;
+    private transient volatile CompiledDecisionTree<T> compiled;
+    private transient volatile boolean compileChecked;
+    /**
+     * Generated code of this tree, or null while the tree is predicted by its compiled form
+     */
+    transient volatile GeneratedDecisionTree generated;
 
     /**
      * Interface to represent a node of {@link DecisionTree}
      * @param <T> - The class type
      */
-    private interface DecisionTreeNode<T> extends Serializable {
+    interface DecisionTreeNode<T> extends Serializable {
 
         /**
          * Method to return Whether this node is a leaf or not
@@ -28,10 +46,18 @@ public class DecisionTree<T> implements Serializable{
         boolean isLeaf();
 
         /**
-         * Method to return a copy of this node
-         * @return a copy of this node
+         * Method to return the label of this node,
+         * for a feature node it is the label it had as a leaf, before it was split
+         * @return label of this node
          */
-        DecisionTreeNode<T> copy();
+        String getLabel();
+
+        /**
+         * Method to return the number of training samples of every label which reached this node,
+         * for a feature node it includes the samples which reached it as a leaf
+         * @return map from every label which occurs to its count, or null if the tree has no statistics
+         */
+        Map<String, Integer> getLabelCounts();
     }
 
     /**
@@ -39,11 +65,17 @@ public class DecisionTree<T> implements Serializable{
      * This node object is an inner node of the tree
      * @param <T> - The class type
      */
-    private class FeatureNode<T> implements DecisionTreeNode<T> {
+    static class FeatureNode<T> implements DecisionTreeNode<T> {
         Predicate<T> feature;
         DecisionTreeNode<T> parent;
         DecisionTreeNode<T> right;
         DecisionTreeNode<T> left;
+        String label;
+        Map<String, Integer> labelCounts;
+        /**
+         * The (1-based) iteration in which this node was split
+         */
+        int order;
 
         @Override
         public boolean isLeaf(){
@@ -51,12 +83,13 @@ public class DecisionTree<T> implements Serializable{
         }
 
         @Override
-        public DecisionTreeNode<T> copy() {
-            FeatureNode<T> copy = new FeatureNode<>();
-            copy.feature = this.feature;
-            copy.left = this.left.copy();
-            copy.right = this.right.copy();
-            return copy;
+        public String getLabel() {
+            return label;
+        }
+
+        @Override
+        public Map<String, Integer> getLabelCounts() {
+            return labelCounts;
         }
     }
 
@@ -65,11 +98,10 @@ public class DecisionTree<T> implements Serializable{
      * This node object is a leaf of the tree
      * @param <T> - The class type
      */
-    private class LabelNode<T> implements DecisionTreeNode<T> {
+    static class LabelNode<T> implements DecisionTreeNode<T> {
         String label;
         DecisionTreeNode<T> parent;
-        List<Predicate<T>> features;
-        DataSet<T> dataSet;
+        Map<String, Integer> labelCounts;
 
         @Override
         public boolean isLeaf(){
@@ -77,174 +109,343 @@ public class DecisionTree<T> implements Serializable{
         }
 
         @Override
-        public DecisionTreeNode<T> copy() {
-            LabelNode<T> copy = new LabelNode<>();
-            copy.label = this.label;
-            return copy;
+        public String getLabel() {
+            return label;
+        }
+
+        @Override
+        public Map<String, Integer> getLabelCounts() {
+            return labelCounts;
         }
     }
 
-    private DecisionTree() {root = null;}
+    DecisionTree() {root = null;}
+
+    /**
+     * Function to create a tree of a given root together with its already compiled form
+     * @param root - root of the tree
+     * @param compiled - the compiled form of the tree
+     * @return new tree
+     */
+    static <T> DecisionTree<T> of(DecisionTreeNode<T> root, CompiledDecisionTree<T> compiled) {
+        DecisionTree<T> tree = new DecisionTree<>();
+        tree.root = root;
+        tree.compiled = compiled;
+        tree.compileChecked = true;
+        return tree;
+    }
 
     /**
      * This method predicts the label of the given object
+     * Trees of {@link ThresholdFeature}s over {@link FeatureVector}s are predicted by their compiled form,
+     * or by their generated code for {@link ByteFeatureVector}s once {@link #generateCode()} succeeded
      * @param toPredict - the object to predict it's matching label
      * @return the label matching the given object
      */
+    @Override
     public String predict(T toPredict){
         if (root == null)
             return null;
-        DecisionTreeNode current = root;
+        GeneratedDecisionTree generatedTree = generated;
+        if (generatedTree != null && toPredict instanceof ByteFeatureVector)
+            return generatedTree.predict((ByteFeatureVector) toPredict);
+        CompiledDecisionTree<T> compiledTree = compile();
+        if (compiledTree != null && toPredict instanceof FeatureVector)
+            return compiledTree.predict((FeatureVector) toPredict);
+        DecisionTreeNode<T> current = root;
         while (!current.isLeaf()){
-            if(((FeatureNode<T>)current).feature.test(toPredict))
-                current = ((FeatureNode<T>)current).right;
+            FeatureNode<T> featureNode = (FeatureNode<T>)current;
+            if (featureNode.order > numOfSplits)
+                break;
+            if(featureNode.feature.test(toPredict))
+                current = featureNode.right;
             else
-                current = ((FeatureNode<T>)current).left;
+                current = featureNode.left;
         }
-        return ((LabelNode<T>)current).label;
+        return current.getLabel();
     }
 
     /**
-     * Function to build decision tree object according to 'ID3' algorithm
-     * using a training data set of <label,object> pairs,
-     * a set of features and maximum tree size
-     * @param features - A collection of predicate objects which have a boolean testing method
-     * @param trainingDataSet - The training data set to learn
-     * @param extractTreeIterations - Array of iteration numbers in which snapshots
-     *                              of the currently built tree will be returned
-     * @return List of decision tree snapshots
+     * Method to return the tree after a given number of splits, as a view sharing this tree's nodes
+     * @param numOfSplits - number of splits
+     * @return view of the first numOfSplits splits of this tree, the whole tree if it has fewer splits
      */
-    public static <T> List<DecisionTree<T>> buildTree(@NonNull Collection<Predicate<T>> features,
-                @NonNull DataSet<T> trainingDataSet, @NonNull DataSetFactory<T> factory, int[] extractTreeIterations) {
-        Arrays.sort(extractTreeIterations);
-        int numOfIterations = extractTreeIterations[extractTreeIterations.length-1];
-        DecisionTree<T> learnTree = new DecisionTree<>();
-        DecisionTree<T>.LabelNode<T> node = learnTree.new LabelNode<T>();
-        node.label = trainingDataSet.getMaxOccurrencesLabel();
-        node.dataSet = trainingDataSet;
-        node.features = new ArrayList<>(features);
-        node.parent = null;
-        learnTree.root = node;
-        Set<DecisionTree<T>.LabelNode<T>> leafSet = new HashSet<>();
-        leafSet.add(node);
-        Set<Tuple3<DecisionTree<T>.LabelNode<T>,DecisionTree<T>.FeatureNode<T>,Double>> calculatedLeaves =
-                new HashSet<>();
-        List<DecisionTree<T>> returnedTrees = new ArrayList<>();
-        int index = 0;
-        for(int i = 1; i <= numOfIterations; i++){
-            for (DecisionTree<T>.LabelNode<T> leaf : leafSet)
-                calculatedLeaves.add(learnTree.maxInformationGain(leaf, factory));
-            leafSet.clear();
-            Tuple3<DecisionTree<T>.LabelNode<T>,DecisionTree<T>.FeatureNode<T>,Double> maxLeaf =
-                    calculatedLeaves.parallelStream()
-                    .max(Comparator.comparing(Tuple3::getT3))
-                    .get();
-            DecisionTree<T>.LabelNode<T> leafToReplace = maxLeaf.getT1();
-            DecisionTree<T>.FeatureNode<T> replacementFeature = maxLeaf.getT2();
-            Double maxInformationGain = maxLeaf.getT3();
-            //TODO: What are we doing when max information gain is 0?!
-            if (maxInformationGain == 0.0)
-                break;
-            DecisionTreeNode<T> parent = leafToReplace.parent;
-            replacementFeature.parent = parent;
-            if (parent != null){
-                DecisionTree<T>.FeatureNode<T> featureParent = (DecisionTree<T>.FeatureNode<T>) parent;
-                if (leafToReplace == featureParent.left)
-                    featureParent.left = replacementFeature;
-                else
-                    featureParent.right = replacementFeature;
+    public DecisionTree<T> snapshot(int numOfSplits){
+        if (numOfSplits < 0)
+            throw new IllegalArgumentException("Number of splits: not a legal value");
+        DecisionTree<T> snapshot = new DecisionTree<>();
+        snapshot.root = root;
+        snapshot.numOfSplits = Math.min(numOfSplits, this.numOfSplits);
+        return snapshot;
+    }
+
+    /**
+     * Method to return the number of splits of this tree
+     * @return number of feature nodes this tree (or view) has
+     */
+    public int getNumOfSplits(){
+        int count = 0;
+        Deque<DecisionTreeNode<T>> stack = new ArrayDeque<>();
+        if (root != null)
+            stack.push(root);
+        while (!stack.isEmpty()) {
+            DecisionTreeNode<T> node = stack.pop();
+            if (!node.isLeaf() && ((FeatureNode<T>)node).order <= numOfSplits) {
+                count++;
+                stack.push(((FeatureNode<T>)node).left);
+                stack.push(((FeatureNode<T>)node).right);
             }
-            else //First swap
-                learnTree.root = replacementFeature;
-
-            leafSet.add((DecisionTree<T>.LabelNode<T>)replacementFeature.left);
-            leafSet.add((DecisionTree<T>.LabelNode<T>)replacementFeature.right);
-            calculatedLeaves.remove(maxLeaf);
-            if (extractTreeIterations[index] == i) {
-                returnedTrees.add(learnTree.copy());
-                index++;
+        }
+        return count;
+    }
+
+    /**
+     * Method to calculate the validation error of this tree after every number of splits, in a single pass
+     * Every entry is pushed down the tree once, and the label of every node on its path is credited
+     * to all the numbers of splits in which that node is a leaf
+     * @param validationSet - data set of labeled objects
+     * @return array whose k-th element is the number of entries mispredicted by the tree after k splits,
+     *         for k from 0 to the number of splits of this tree
+     */
+    public int[] errorCurve(@NonNull DataSet<T> validationSet){
+        int numOfSplits = getNumOfSplits();
+        int[] diff = new int[numOfSplits + 2];
+        if (root == null) {
+            diff[0] += validationSet.size();
+            diff[numOfSplits + 1] -= validationSet.size();
+        }
+        else {
+            for (DataSetEntry<T> entry : validationSet) {
+                DecisionTreeNode<T> current = root;
+                int firstSplits = 0;
+                while (!current.isLeaf() && ((FeatureNode<T>)current).order <= this.numOfSplits) {
+                    FeatureNode<T> featureNode = (FeatureNode<T>)current;
+                    // this node is a leaf of the trees of firstSplits to order-1 splits
+                    if (!Objects.equals(featureNode.label, entry.getLabel())) {
+                        diff[firstSplits]++;
+                        diff[featureNode.order]--;
+                    }
+                    firstSplits = featureNode.order;
+                    current = featureNode.feature.test(entry.getObject()) ? featureNode.right : featureNode.left;
+                }
+                if (!Objects.equals(current.getLabel(), entry.getLabel())) {
+                    diff[firstSplits]++;
+                    diff[numOfSplits + 1]--;
+                }
             }
         }
+        int[] errors = new int[numOfSplits + 1];
+        int sum = 0;
+        for (int k = 0; k < errors.length; k++) {
+            sum += diff[k];
+            errors[k] = sum;
+        }
+        return errors;
+    }
 
-        return returnedTrees;
+    /**
+     * This method predicts the labels of a batch of objects, in parallel for large batches
+     * @param toPredict - the objects to predict their matching labels
+     * @return array of the labels matching the objects, in the objects' order
+     */
+    @Override
+    public String[] predictAll(@NonNull List<? extends T> toPredict){
+        String[] labels = new String[toPredict.size()];
+        IntStream indices = IntStream.range(0, labels.length);
+        if (labels.length >= PARALLEL_PREDICTION_THRESHOLD)
+            indices = indices.parallel();
+        indices.forEach(i -> labels[i] = predict(toPredict.get(i)));
+        return labels;
     }
 
     /**
-     * Method that calculates entropy value for a given leaf
-     * @param t - leaf
-     * @return Entropy of t (H(L))
+     * Method to return the compiled form of this tree, which is created on first use
+     * @return the compiled tree, or null if this tree has features which are not {@link ThresholdFeature}s
      */
-    private Double calcEntropy(LabelNode<T> t){
-        Integer dataSetSize = t.dataSet.size(); //N(L)
-        Map<String, Long> labelCounts = t.dataSet.getLabelCounts();
-        Double entropy = 0.0;
-        for(Map.Entry<String, Long> entry : labelCounts.entrySet()) {
-            entropy += ((((double)entry.getValue())/dataSetSize) *
-                    Math.log(((double)dataSetSize)/entry.getValue()));
+    public CompiledDecisionTree<T> compile() {
+        if (!compileChecked) {
+            compiled = CompiledDecisionTree.compile(this);
+            compileChecked = true;
         }
-        return entropy;
-    }
-
-    /**
-     * Method that calculates the maximal information gain (over all possible features) for a given leaf
-     * @param t - leaf
-     * @return A tuple of the leaf, a replacement sub-tree and information gain of the replacement
-     */
-    private Tuple3<LabelNode<T>,FeatureNode<T>,Double> maxInformationGain(LabelNode<T> t, DataSetFactory<T> factory) {
-        Double entropy = calcEntropy(t);
-        Double minWeightedEntropy = Double.MAX_VALUE;
-        Predicate<T> bestFeature = null;
-        LabelNode resultRight = null;
-        LabelNode resultLeft = null;
-        Integer dataSetSize = t.dataSet.size(); //N(L)
-        for(Predicate<T> feature : t.features){
-            List<DataSetEntry<T>> listA = new ArrayList<>();
-            List<DataSetEntry<T>> listB = new ArrayList<>();
-            for (DataSetEntry<T> entry : t.dataSet) {
-                if(feature.test(entry.getObject()))
-                    listA.add(entry); //Yes
-                else
-                    listB.add(entry); //No
+        return compiled;
+    }
+
+    /**
+     * Method to generate the code of this tree from its compiled form, see {@link GeneratedDecisionTree}
+     * A tree which can not be compiled, or is too large to generate, stays predicted by its compiled form
+     * or its nodes
+     * @return true if this tree is predicted by generated code
+     */
+    @Override
+    public boolean generateCode() {
+        if (generated == null) {
+            CompiledDecisionTree<T> compiledTree = compile();
+            if (compiledTree != null)
+                generated = compiledTree.generate();
+        }
+        return generated != null;
+    }
+
+    /**
+     * Method to update this tree with a batch of new labeled objects, see {@link #update(Collection, DataSet,
+     * UpdateOptions)}, with the default settings
+     * @param features - A collection of predicate objects which new splits are chosen from
+     * @param batch - the new labeled objects
+     * @return the number of splits grown
+     */
+    public int update(@NonNull Collection<Predicate<T>> features, @NonNull DataSet<T> batch) {
+        return update(features, batch, UpdateOptions.defaults());
+    }
+
+    /**
+     * Method to update this tree with a batch of new labeled objects, without training it again
+     * Every object is routed to its leaf, adding to the label counts of the nodes on its path, which are
+     * relabeled by their counts. Then leaves are split by the objects of the batch which reached them, as long as
+     * the Hoeffding bound of the settings justifies their best split and the split budget is not used up.
+     * New splits get growth orders after all the splits of the tree, and the leaves they create count only the
+     * objects of the batch. The cost depends on the size of the batch and the tree, and not on the samples
+     * the tree was trained on.
+     * Only trees with statistics (see {@link DecisionTreeNode#getLabelCounts()}) can be updated, since the labels
+     * of a tree without them would follow the batch alone. A view (see {@link #snapshot(int)}) is first detached
+     * from the tree it views.
+     * The compiled form and the generated code of the tree are discarded, so the tree must not be predicted
+     * while it is updated
+     * @param features - A collection of predicate objects which new splits are chosen from
+     * @param batch - the new labeled objects
+     * @param options - update settings
+     * @return the number of splits grown
+     * @throws IllegalStateException if the tree is empty or has no statistics
+     */
+    public int update(@NonNull Collection<Predicate<T>> features, @NonNull DataSet<T> batch,
+                      @NonNull UpdateOptions options) {
+        if (root == null)
+            throw new IllegalStateException("An empty tree can not be updated");
+        if (root.getLabelCounts() == null)
+            throw new IllegalStateException("The tree has no label statistics, it must be trained again");
+        if (numOfSplits != Integer.MAX_VALUE)
+            detach();
+        int grown = batch.size() == 0 ? 0 :
+                TreeBuilder.of(features, batch, options.getTrainingOptions()).update(this, batch, options);
+        compiled = null;
+        compileChecked = false;
+        generated = null;
+        return grown;
+    }
+
+    /**
+     * Method to replace the nodes of this view by copies of the nodes it views, so it can change alone
+     * Feature nodes beyond the number of splits of the view are copied as leaves
+     */
+    private void detach() {
+        Map<DecisionTreeNode<T>, FeatureNode<T>> copies = new IdentityHashMap<>();
+        Deque<DecisionTreeNode<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+        DecisionTreeNode<T> rootCopy = null;
+        while (!stack.isEmpty()) {
+            DecisionTreeNode<T> node = stack.pop();
+            FeatureNode<T> parent = copies.get(parentOf(node));
+            DecisionTreeNode<T> copy;
+            if (node.isLeaf() || ((FeatureNode<T>) node).order > numOfSplits) {
+                LabelNode<T> leaf = new LabelNode<>();
+                leaf.label = node.getLabel();
+                leaf.labelCounts = copyOf(node.getLabelCounts());
+                leaf.parent = parent;
+                copy = leaf;
             }
-            LabelNode<T> la = new LabelNode<>();
-            la.dataSet = factory.newInstance(listA);
-            LabelNode<T> lb = new LabelNode<>();
-            lb.dataSet = factory.newInstance(listB);
-            Double laEntropy =  calcEntropy(la);
-            Double lbEntropy =  calcEntropy(lb);
-            Integer laDataSize = la.dataSet.size();
-            Integer lbDataSize = lb.dataSet.size();
-            Double result = (((double)laDataSize)/dataSetSize)*laEntropy +
-                    (((double)lbDataSize)/dataSetSize)*lbEntropy;
-            if(result < minWeightedEntropy) {
-                minWeightedEntropy = result;
-                bestFeature = feature;
-                resultRight = la;
-                resultLeft = lb;
+            else {
+                FeatureNode<T> featureNode = (FeatureNode<T>) node;
+                FeatureNode<T> featureCopy = new FeatureNode<>();
+                featureCopy.feature = featureNode.feature;
+                featureCopy.label = featureNode.label;
+                featureCopy.labelCounts = copyOf(featureNode.labelCounts);
+                featureCopy.order = featureNode.order;
+                featureCopy.parent = parent;
+                copies.put(featureNode, featureCopy);
+                stack.push(featureNode.left);
+                stack.push(featureNode.right);
+                copy = featureCopy;
             }
+            if (parent == null)
+                rootCopy = copy;
+            else if (((FeatureNode<T>) parentOf(node)).right == node)
+                parent.right = copy;
+            else
+                parent.left = copy;
         }
-        FeatureNode<T> featureNode = new FeatureNode<>();
-        featureNode.feature = bestFeature;
-        featureNode.right = resultRight;
-        featureNode.left = resultLeft;
-        resultRight.features = new ArrayList<>(t.features);
-        resultRight.features.remove(bestFeature);
-        resultRight.label = resultRight.dataSet.getMaxOccurrencesLabel();
-        resultRight.parent = featureNode;
-        resultLeft.features = new ArrayList<>(resultRight.features);
-        resultLeft.label = resultLeft.dataSet.getMaxOccurrencesLabel();
-        resultLeft.parent = featureNode;
+        root = rootCopy;
+        numOfSplits = Integer.MAX_VALUE;
+    }
+
+    private static <T> DecisionTreeNode<T> parentOf(DecisionTreeNode<T> node) {
+        return node.isLeaf() ? ((LabelNode<T>) node).parent : ((FeatureNode<T>) node).parent;
+    }
+
+    private static Map<String, Integer> copyOf(Map<String, Integer> labelCounts) {
+        return labelCounts == null ? null : new HashMap<>(labelCounts);
+    }
+
+    /**
+     * Function to build decision tree object according to 'ID3' algorithm
+     * using a training data set of <label,object> pairs,
+     * a set of features and maximum tree size
+     * @param features - A collection of predicate objects which have a boolean testing method
+     * @param trainingDataSet - The training data set to learn
+     * @param extractTreeIterations - Array of iteration numbers in which snapshots
+     *                              of the currently built tree will be returned
+     * @return List of decision tree snapshots, views sharing the nodes of the fully built tree
+     *         (a snapshot of an iteration after the training ended is the fully built tree)
+     */
+    public static <T> List<DecisionTree<T>> buildTree(@NonNull Collection<Predicate<T>> features,
+                @NonNull DataSet<T> trainingDataSet, int[] extractTreeIterations) {
+        return buildTree(features, trainingDataSet, extractTreeIterations, TrainingOptions.defaults());
+    }
 
-        return new Tuple3<>(t, featureNode, dataSetSize*(entropy - minWeightedEntropy));
+    /**
+     * Function to build decision tree object according to 'ID3' algorithm
+     * using a training data set of <label,object> pairs,
+     * a set of features, maximum tree size and training settings
+     * @param features - A collection of predicate objects which have a boolean testing method
+     * @param trainingDataSet - The training data set to learn
+     * @param extractTreeIterations - Array of iteration numbers in which snapshots
+     *                              of the currently built tree will be returned
+     * @param options - training settings
+     * @return List of decision tree snapshots
+     * @throws java.io.UncheckedIOException if the checkpoint of the options can not be read or written
+     */
+    public static <T> List<DecisionTree<T>> buildTree(@NonNull Collection<Predicate<T>> features,
+                @NonNull DataSet<T> trainingDataSet, int[] extractTreeIterations, @NonNull TrainingOptions options) {
+        return TreeBuilder.of(features, trainingDataSet, options).build(extractTreeIterations);
     }
 
     /**
-     * Method to return a snapshot of this tree
-     * @return a snapshot of this tree
+     * Function to build decision tree object according to 'ID3' algorithm
+     * using features which were precomputed over the training data set
+     * @param featureMatrix - The features, precomputed over the training data set or a superset of it
+     * @param trainingDataSet - The training data set to learn
+     * @param extractTreeIterations - Array of iteration numbers in which snapshots
+     *                              of the currently built tree will be returned
+     * @return List of decision tree snapshots, views sharing the nodes of the fully built tree
+     *         (a snapshot of an iteration after the training ended is the fully built tree)
      */
-    private DecisionTree<T> copy() {
-        DecisionTree<T> copy = new DecisionTree<>();
-        copy.root = this.root.copy();
-        return copy;
+    public static <T> List<DecisionTree<T>> buildTree(@NonNull FeatureMatrix<T> featureMatrix,
+                @NonNull DataSet<T> trainingDataSet, int[] extractTreeIterations) {
+        return buildTree(featureMatrix, trainingDataSet, extractTreeIterations, TrainingOptions.defaults());
     }
+
+    /**
+     * Function to build decision tree object according to 'ID3' algorithm
+     * using features which were precomputed over the training data set and training settings
+     * @param featureMatrix - The features, precomputed over the training data set or a superset of it
+     * @param trainingDataSet - The training data set to learn
+     * @param extractTreeIterations - Array of iteration numbers in which snapshots
+     *                              of the currently built tree will be returned
+     * @param options - training settings
+     * @return List of decision tree snapshots
+     * @throws java.io.UncheckedIOException if the checkpoint of the options can not be read or written
+     */
+    public static <T> List<DecisionTree<T>> buildTree(@NonNull FeatureMatrix<T> featureMatrix,
+                @NonNull DataSet<T> trainingDataSet, int[] extractTreeIterations, @NonNull TrainingOptions options) {
+        return TreeBuilder.of(featureMatrix, trainingDataSet, options).build(extractTreeIterations);
+    }
+
 }
@@ -0,0 +1,179 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.NonNull;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Class that holds the values of a collection of features precomputed over a data set
+ * Every feature is tested once per sample and its results are packed into a bit column,
+ * so one matrix can be shared by several trainings over the data set or its subsets
+ * @param <T> - The class type
+ */
+public class FeatureMatrix<T> implements FeatureSource<T> {
+
+    private final List<Predicate<T>> features;
+    private final int numOfRows;
+    private final int words;
+    private final long[] bits;
+    private final String[] labelNames;
+    private final int[] labels;
+    private final DataSet<T> dataSet;
+    private final List<DataSetEntry<T>> entries;
+    private Map<DataSetEntry<T>, Integer> rows;
+
+    /**
+     * Constructor that evaluates every feature on every entry of a data set
+     * @param features - A collection of predicate objects which have a boolean testing method
+     * @param dataSet - the data set to precompute
+     */
+    public FeatureMatrix(@NonNull Collection<Predicate<T>> features, @NonNull DataSet<T> dataSet) {
+        this.features = new ArrayList<>(features);
+        this.numOfRows = dataSet.size();
+        this.words = (numOfRows + 63) >>> 6;
+        this.labelNames = dataSet.getLabelDictionary().getNames();
+        this.labels = dataSet.getLabelIds();
+        this.dataSet = dataSet;
+        this.entries = dataSet instanceof DataSetImpl && ((DataSetImpl<T>) dataSet).getEntries().size() == numOfRows ?
+                ((DataSetImpl<T>) dataSet).getEntries() : null;
+        List<T> objects = new ArrayList<>(numOfRows);
+        for (DataSetEntry<T> entry : dataSet)
+            objects.add(entry.getObject());
+        this.bits = new long[this.features.size() * words];
+        IntStream.range(0, this.features.size()).parallel().forEach(f -> {
+            Predicate<T> feature = this.features.get(f);
+            int base = f * words;
+            for (int row = 0; row < numOfRows; row++)
+                if (feature.test(objects.get(row)))
+                    bits[base + (row >>> 6)] |= 1L << row;
+        });
+    }
+
+    @Override
+    public int numOfFeatures() {
+        return features.size();
+    }
+
+    @Override
+    public Predicate<T> getFeature(int feature) {
+        return features.get(feature);
+    }
+
+    @Override
+    public boolean test(int feature, int row) {
+        return (bits[feature * words + (row >>> 6)] & (1L << row)) != 0;
+    }
+
+    /**
+     * Method to return the number of rows (samples) in this matrix
+     * @return number of rows
+     */
+    public int size() {
+        return numOfRows;
+    }
+
+    /**
+     * Method to return the sorted label names, indexed by label id
+     * @return label names
+     */
+    String[] getLabelNames() {
+        return labelNames;
+    }
+
+    /**
+     * Method to return the label id of every row
+     * @return label ids
+     */
+    int[] getLabels() {
+        return labels;
+    }
+
+    /**
+     * Method to return the rows of the entries of a given data set
+     * @param dataSet - the data set this matrix was built from, or a subset of it
+     * @return array of rows, in the data set's iteration order
+     */
+    int[] rowsOf(DataSet<T> dataSet) {
+        // views over the entries this matrix was built from already hold their rows
+        if (entries != null && dataSet instanceof DataSetImpl && ((DataSetImpl<T>) dataSet).getEntries() == entries)
+            return ((DataSetImpl<T>) dataSet).getIndices();
+        Map<DataSetEntry<T>, Integer> rows = rowsByEntry();
+        int[] result = new int[dataSet.size()];
+        int i = 0;
+        for (DataSetEntry<T> entry : dataSet) {
+            Integer row = rows.get(entry);
+            if (row == null)
+                throw new IllegalArgumentException("FeatureMatrix: data set entry was not precomputed");
+            result[i++] = row;
+        }
+        return result;
+    }
+
+    /**
+     * Method to return the row of every entry of the data set this matrix was built from
+     * The map is built on first use
+     * @return identity map of entries to rows
+     */
+    private synchronized Map<DataSetEntry<T>, Integer> rowsByEntry() {
+        if (rows == null) {
+            rows = new IdentityHashMap<>(numOfRows);
+            int row = 0;
+            for (DataSetEntry<T> entry : dataSet)
+                rows.put(entry, row++);
+        }
+        return rows;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Leaves which are large compared to the matrix are counted by building one bit mask
+     * per label and intersecting it with the feature's column, smaller leaves test their
+     * samples' bits one by one
+     */
+    @Override
+    public LeafCounter newLeafCounter(int[] rows, int from, int to, int[] labels, int numOfLabels) {
+        int firstWord = words;
+        int lastWord = -1;
+        for (int i = from; i < to; i++) {
+            int word = rows[i] >>> 6;
+            firstWord = Math.min(firstWord, word);
+            lastWord = Math.max(lastWord, word);
+        }
+        int span = lastWord - firstWord + 1;
+        if (span <= 0 || 2L * numOfLabels * span > to - from)
+            return (feature, trueCounts) -> {
+                Arrays.fill(trueCounts, 0);
+                int base = feature * words;
+                int trueSize = 0;
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    if ((bits[base + (row >>> 6)] & (1L << row)) != 0) {
+                        trueCounts[labels[row]]++;
+                        trueSize++;
+                    }
+                }
+                return trueSize;
+            };
+        long[] masks = new long[numOfLabels * span];
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            masks[labels[row] * span + (row >>> 6) - firstWord] |= 1L << row;
+        }
+        int start = firstWord;
+        return (feature, trueCounts) -> {
+            int base = feature * words + start;
+            int trueSize = 0;
+            for (int l = 0; l < numOfLabels; l++) {
+                int maskBase = l * span;
+                int count = 0;
+                for (int w = 0; w < span; w++)
+                    count += Long.bitCount(bits[base + w] & masks[maskBase + w]);
+                trueCounts[l] = count;
+                trueSize += count;
+            }
+            return trueSize;
+        };
+    }
+}
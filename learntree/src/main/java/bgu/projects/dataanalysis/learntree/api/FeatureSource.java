@@ -0,0 +1,198 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.util.function.Predicate;
+
+/**
+ * Interface to represent the features a {@link DecisionTree} is trained with
+ * Samples are referred to by their row index in the training data
+ * @param <T> - The class type
+ */
+interface FeatureSource<T> {
+
+    /**
+     * Method to return the number of features
+     * @return number of features
+     */
+    int numOfFeatures();
+
+    /**
+     * Method to return the number of feature groups
+     * The features of a group are consecutive and nested: a sample which passes a feature of a group
+     * passes the group's previous features too, like thresholds on a single value in ascending order
+     * By default every feature is a group of its own
+     * @return number of groups
+     */
+    default int numOfGroups() {
+        return numOfFeatures();
+    }
+
+    /**
+     * Method to return the first feature of a group
+     * @param group - group index, {@link #numOfGroups()} gives the number of features
+     * @return feature index
+     */
+    default int firstFeatureOf(int group) {
+        return group;
+    }
+
+    /**
+     * Method to return the predicate of a given feature, to be stored in the tree
+     * @param feature - feature index
+     * @return predicate of the feature
+     */
+    Predicate<T> getFeature(int feature);
+
+    /**
+     * Method to test a feature on a single sample
+     * @param feature - feature index
+     * @param row - sample row
+     * @return the feature's value on the sample
+     */
+    boolean test(int feature, int row);
+
+    /**
+     * Method to return the source a training run counts with, which may keep its own copy of the samples' data
+     * in the order of the run's rows, since the run reorders its rows only by {@link #partition}
+     * By default the source itself
+     * @param rows - the rows of the run's samples
+     * @param labels - label id of every row
+     * @return the source of the run
+     */
+    default FeatureSource<T> forRows(int[] rows, int[] labels) {
+        return this;
+    }
+
+    /**
+     * Method to return the source a training run over some of the groups counts with, see {@link #forRows}
+     * By default the source of a run over all the groups
+     * @param rows - the rows of the run's samples
+     * @param labels - label id of every row
+     * @param groups - the groups the run counts, in ascending order
+     * @return the source of the run
+     */
+    default FeatureSource<T> forRows(int[] rows, int[] labels, int[] groups) {
+        return forRows(rows, labels);
+    }
+
+    /**
+     * Method to partition the samples of a leaf in place by a feature, keeping their order: the samples which
+     * fail the feature come first and the samples which pass it come last
+     * @param rows - array of sample rows
+     * @param from - first index of the leaf's samples in rows (inclusive)
+     * @param to - last index of the leaf's samples in rows (exclusive)
+     * @param feature - feature index
+     * @param scratch - array of at least to - from elements
+     * @return index of the first sample which passes the feature
+     */
+    default int partition(int[] rows, int from, int to, int feature, int[] scratch) {
+        int write = from;
+        int trueSize = 0;
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            if (test(feature, row))
+                scratch[trueSize++] = row;
+            else
+                rows[write++] = row;
+        }
+        System.arraycopy(scratch, 0, rows, write, trueSize);
+        return write;
+    }
+
+    /**
+     * Method to prepare label counting over the samples of a single leaf
+     * @param rows - array of sample rows
+     * @param from - first index of the leaf's samples in rows (inclusive)
+     * @param to - last index of the leaf's samples in rows (exclusive)
+     * @param labels - label id of every sample row
+     * @param numOfLabels - number of different label ids
+     * @return counter of the leaf's samples
+     */
+    LeafCounter newLeafCounter(int[] rows, int from, int to, int[] labels, int numOfLabels);
+
+    /**
+     * Method to prepare label counting over the samples of one of the two leaves created by a split,
+     * which derives the counts of a group from the counts the split leaf and the other new leaf kept
+     * (see {@link LeafCounter#keepGroupCounts()}) instead of counting its samples
+     * By default the leaf's samples are counted
+     * @param rows - array of sample rows
+     * @param from - first index of the leaf's samples in rows (inclusive)
+     * @param to - last index of the leaf's samples in rows (exclusive)
+     * @param labels - label id of every sample row
+     * @param numOfLabels - number of different label ids
+     * @param parent - counter of the split leaf, whose kept counts are taken over by the new counter
+     * @param sibling - counter of the other new leaf, which keeps its counts until this counter is done
+     * @return counter of the leaf's samples, which keeps its group counts if it derives them
+     */
+    default LeafCounter newLeafCounter(int[] rows, int from, int to, int[] labels, int numOfLabels,
+                                       LeafCounter parent, LeafCounter sibling) {
+        return newLeafCounter(rows, from, to, labels, numOfLabels);
+    }
+
+    /**
+     * Method to return the memory a leaf counter takes to keep its group counts
+     * @param numOfLabels - number of different label ids
+     * @return number of bytes, 0 if counters never keep their counts
+     */
+    default long keptCountsBytes(int numOfLabels) {
+        return 0;
+    }
+
+    /**
+     * Interface to count the labels of a leaf's samples which pass a feature
+     */
+    interface LeafCounter {
+
+        /**
+         * Method to count, per label, the leaf's samples which pass a given feature
+         * @param feature - feature index
+         * @param trueCounts - output array of per label counts, overwritten by this method
+         * @return number of samples which pass the feature
+         */
+        int countTrue(int feature, int[] trueCounts);
+
+        /**
+         * Method to count, per label, the leaf's samples which pass the features of a group
+         * Consecutive features of the group which pass the same samples form a run,
+         * and only the first feature of every run is reported, in ascending order
+         * By default every feature is counted by {@link #countTrue(int, int[])}: the features are nested,
+         * so a feature which passes as many samples as the previous one passes the same samples
+         * @param first - the group's first feature
+         * @param last - the feature after the group's last feature
+         * @param numOfLabels - number of different label ids
+         * @param trueCounts - output array of per label counts, from index k * number of labels for the k-th run
+         * @param trueSizes - output array of the number of samples which pass the features of the k-th run
+         * @param runStarts - output array of the first feature of the k-th run, relative to the group's first
+         * @return number of runs
+         */
+        default int countGroup(int first, int last, int numOfLabels,
+                               int[] trueCounts, int[] trueSizes, int[] runStarts) {
+            int[] counts = new int[numOfLabels];
+            int numOfRuns = 0;
+            for (int f = first; f < last; f++) {
+                int trueSize = countTrue(f, counts);
+                if (numOfRuns > 0 && trueSize == trueSizes[numOfRuns - 1])
+                    continue;
+                System.arraycopy(counts, 0, trueCounts, numOfRuns * numOfLabels, numOfLabels);
+                trueSizes[numOfRuns] = trueSize;
+                runStarts[numOfRuns++] = f - first;
+            }
+            return numOfRuns;
+        }
+
+        /**
+         * Method to keep the counts of the groups this counter counts, from which the counters of the leaves
+         * created by splitting the leaf derive theirs, until {@link #release()}
+         * Called before counting, by default counts are not kept
+         * @return whether the counts are kept
+         */
+        default boolean keepGroupCounts() {
+            return false;
+        }
+
+        /**
+         * Method to release the kept group counts, if any
+         */
+        default void release() {
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.util.function.Predicate;
+
+/**
+ * Class that implements {@link FeatureSource} as a view of some of the feature groups of another source
+ * The chosen groups keep their order and their features, and their samples are bound, partitioned and counted
+ * by the other source, so a view trains as fast as the other source
+ * @param <T> - The class type
+ */
+class FeatureSubsetSource<T> implements FeatureSource<T> {
+
+    private final FeatureSource<T> source;
+    private final int[] groups;
+    /**
+     * First feature of every chosen group in this view, followed by the number of features in this view
+     */
+    private final int[] groupStarts;
+    /**
+     * Feature index in the other source of every feature of this view
+     */
+    private final int[] features;
+
+    /**
+     * Constructor of a view of some of the feature groups of a source
+     * @param source - the source of all the features
+     * @param groups - the chosen groups of the source, in ascending order
+     */
+    FeatureSubsetSource(FeatureSource<T> source, int[] groups) {
+        this.source = source;
+        this.groups = groups.clone();
+        this.groupStarts = new int[groups.length + 1];
+        for (int g = 0; g < groups.length; g++) {
+            int groupSize = source.firstFeatureOf(groups[g] + 1) - source.firstFeatureOf(groups[g]);
+            groupStarts[g + 1] = groupStarts[g] + groupSize;
+        }
+        this.features = new int[groupStarts[groups.length]];
+        for (int g = 0; g < groups.length; g++)
+            for (int i = groupStarts[g]; i < groupStarts[g + 1]; i++)
+                features[i] = source.firstFeatureOf(groups[g]) + i - groupStarts[g];
+    }
+
+    /**
+     * Constructor of the same view of another source, which has the features of the view's source
+     * @param view - the view
+     * @param source - the other source
+     */
+    private FeatureSubsetSource(FeatureSubsetSource<T> view, FeatureSource<T> source) {
+        this.source = source;
+        this.groups = view.groups;
+        this.groupStarts = view.groupStarts;
+        this.features = view.features;
+    }
+
+    @Override
+    public int numOfFeatures() {
+        return features.length;
+    }
+
+    @Override
+    public int numOfGroups() {
+        return groups.length;
+    }
+
+    @Override
+    public int firstFeatureOf(int group) {
+        return groupStarts[group];
+    }
+
+    @Override
+    public Predicate<T> getFeature(int feature) {
+        return source.getFeature(features[feature]);
+    }
+
+    @Override
+    public boolean test(int feature, int row) {
+        return source.test(features[feature], row);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The bound source is the same view of the other source's source of a run over the chosen groups
+     */
+    @Override
+    public FeatureSource<T> forRows(int[] rows, int[] labels) {
+        FeatureSource<T> bound = source.forRows(rows, labels, groups);
+        return bound == source ? this : new FeatureSubsetSource<>(this, bound);
+    }
+
+    @Override
+    public int partition(int[] rows, int from, int to, int feature, int[] scratch) {
+        return source.partition(rows, from, to, features[feature], scratch);
+    }
+
+    @Override
+    public LeafCounter newLeafCounter(int[] rows, int from, int to, int[] labels, int numOfLabels) {
+        return new Counter(source.newLeafCounter(rows, from, to, labels, numOfLabels));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The counts are derived by the other source, from the counters of the other source the given counters wrap
+     */
+    @Override
+    public LeafCounter newLeafCounter(int[] rows, int from, int to, int[] labels, int numOfLabels,
+                                      LeafCounter parent, LeafCounter sibling) {
+        return new Counter(source.newLeafCounter(rows, from, to, labels, numOfLabels,
+                unwrap(parent), unwrap(sibling)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Counters of a view which is not bound keep the counts of all the groups of the other source, which
+     * bounds the memory of the counters of its bound source
+     */
+    @Override
+    public long keptCountsBytes(int numOfLabels) {
+        return source.keptCountsBytes(numOfLabels);
+    }
+
+    private static LeafCounter unwrap(LeafCounter counter) {
+        return counter instanceof FeatureSubsetSource<?>.Counter ? ((FeatureSubsetSource<?>.Counter) counter).counter :
+                counter;
+    }
+
+    /**
+     * Class to count the samples of a leaf by a counter of the other source
+     */
+    private class Counter implements LeafCounter {
+
+        private final LeafCounter counter;
+
+        Counter(LeafCounter counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public int countTrue(int feature, int[] trueCounts) {
+            return counter.countTrue(features[feature], trueCounts);
+        }
+
+        @Override
+        public int countGroup(int first, int last, int numOfLabels,
+                              int[] trueCounts, int[] trueSizes, int[] runStarts) {
+            return counter.countGroup(features[first], features[last - 1] + 1, numOfLabels,
+                    trueCounts, trueSizes, runStarts);
+        }
+
+        @Override
+        public boolean keepGroupCounts() {
+            return counter.keepGroupCounts();
+        }
+
+        @Override
+        public void release() {
+            counter.release();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+/**
+ * Interface to represent an object whose features are an indexed vector of integer values,
+ * such as the pixels of an image
+ */
+public interface FeatureVector {
+
+    /**
+     * Method to return the value at a given index
+     * @param index - value index
+     * @return the value at the index
+     */
+    int getValue(int index);
+}
@@ -0,0 +1,44 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+/**
+ * Class of a {@link CompiledDecisionTree} turned into code: its subclasses are generated at run time
+ * by {@link TreeClassGenerator}, and their prediction method is nested branches on constant value offsets
+ * and thresholds, which the JIT compiles like a handwritten method
+ * Objects of this class are immutable
+ */
+public abstract class GeneratedDecisionTree {
+
+    /**
+     * Labels of the tree, indexed by label id, set once by the generator
+     */
+    String[] labelNames;
+
+    protected GeneratedDecisionTree() {
+    }
+
+    /**
+     * This method predicts the label id of the vector of byte values at the given offset
+     * @param values - array of unsigned byte values, see {@link ByteFeatureVector}
+     * @param offset - the index of the vector's first value
+     * @return the id of the label matching the vector, an index of {@link #getLabelNames()}, or -1
+     */
+    public abstract int predictLabelId(byte[] values, int offset);
+
+    /**
+     * This method predicts the label of the given object
+     * @param toPredict - the object to predict it's matching label
+     * @return the label matching the given object
+     */
+    public String predict(ByteFeatureVector toPredict) {
+        int label = predictLabelId(toPredict.getValues(), toPredict.getOffset());
+        return label < 0 ? null : labelNames[label];
+    }
+
+    /**
+     * Method to return the labels of this tree, indexed by label id
+     * @return a copy of the label names
+     */
+    public String[] getLabelNames() {
+        return labelNames.clone();
+    }
+}
@@ -0,0 +1,50 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Object of the measurements of a single iteration (split) of a {@link DecisionTree} training run
+ * This object is immutable
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class IterationMetrics {
+
+    /**
+     * Iteration number, the growth order of the feature node created by the iteration
+     */
+    private final int iteration;
+    /**
+     * Information gain of the split
+     */
+    private final double gain;
+    /**
+     * Number of samples of the split leaf, and of the leaf's samples which fail and pass the split's feature
+     */
+    private final int leafSize;
+    private final int falseSize;
+    private final int trueSize;
+    /**
+     * Number of leaves waiting to be split after the iteration
+     */
+    private final int frontierSize;
+    /**
+     * Number of candidate splits whose weighted entropy was evaluated by the split search of the iteration
+     */
+    private final long candidatesScored;
+    /**
+     * Nanoseconds spent searching the best splits of the leaves created by the previous iteration,
+     * in choosing the leaf to split from the frontier, and in partitioning the chosen leaf's samples
+     */
+    private final long splitSearchNanos;
+    private final long frontierNanos;
+    private final long partitionNanos;
+    /**
+     * Bytes allocated by the training run during the iteration, on its own thread and by its tasks on the threads
+     * of the pool, or -1 if the JVM can not tell
+     */
+    private final long allocatedBytes;
+}
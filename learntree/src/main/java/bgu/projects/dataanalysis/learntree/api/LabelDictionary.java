@@ -0,0 +1,106 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Immutable dictionary which gives every label of a data set a dense integer id
+ * Ids follow the natural order of the labels, so dictionaries of the same labels agree
+ */
+public class LabelDictionary implements Serializable {
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+
+    private LabelDictionary(String[] names) {
+        this.names = names;
+        this.ids = new HashMap<>();
+        for (int i = 0; i < names.length; i++)
+            ids.put(names[i], i);
+    }
+
+    /**
+     * Function to create a dictionary of a collection of labels
+     * @param labels - the labels, may contain duplicates
+     * @return dictionary of the distinct labels
+     */
+    public static LabelDictionary of(@NonNull Collection<String> labels) {
+        return new LabelDictionary(new TreeSet<>(labels).toArray(new String[0]));
+    }
+
+    /**
+     * Method to return the id of a label
+     * @param label - the label
+     * @return id of the label, or -1 if it is not in this dictionary
+     */
+    public int idOf(String label) {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Method to return the label of an id
+     * @param id - id between 0 and {@link #size()} - 1
+     * @return the label
+     */
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * Method to return the number of labels in this dictionary
+     * @return number of labels
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Method to convert label id counts to a map of labels and their counts
+     * @param labelCounts - number of occurrences of every label id
+     * @return map of <label,occurrences> pairs of the labels which occur
+     */
+    Map<String, Long> toLabelCounts(int[] labelCounts) {
+        Map<String, Long> counts = new HashMap<>();
+        for (int l = 0; l < labelCounts.length; l++)
+            if (labelCounts[l] > 0)
+                counts.put(names[l], (long) labelCounts[l]);
+        return counts;
+    }
+
+    /**
+     * Method to return the most common label, ties go to the lower id
+     * @param labelCounts - number of occurrences of every label id
+     * @return most common label, or null if no label occurs
+     */
+    String maxOccurrencesLabel(int[] labelCounts) {
+        int max = -1;
+        for (int l = 0; l < labelCounts.length; l++)
+            if (labelCounts[l] > 0 && (max < 0 || labelCounts[l] > labelCounts[max]))
+                max = l;
+        return max < 0 ? null : names[max];
+    }
+
+    /**
+     * Method to return the labels which occur
+     * @param labelCounts - number of occurrences of every label id
+     * @return unmodifiable set of the labels whose count is positive
+     */
+    Set<String> occurringLabels(int[] labelCounts) {
+        Set<String> labels = new HashSet<>();
+        for (int l = 0; l < labelCounts.length; l++)
+            if (labelCounts[l] > 0)
+                labels.add(names[l]);
+        return Collections.unmodifiableSet(labels);
+    }
+
+    /**
+     * Method to return the labels, indexed by id
+     * @return label names, not to be modified
+     */
+    String[] getNames() {
+        return names;
+    }
+}
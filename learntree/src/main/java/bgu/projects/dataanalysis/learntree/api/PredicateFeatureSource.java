@@ -0,0 +1,55 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Class that implements {@link FeatureSource} by testing the predicates
+ * directly against the training objects
+ * @param <T> - The class type
+ */
+class PredicateFeatureSource<T> implements FeatureSource<T> {
+
+    private final List<Predicate<T>> features;
+    private final List<T> objects;
+
+    PredicateFeatureSource(Collection<Predicate<T>> features, List<T> objects) {
+        this.features = new ArrayList<>(features);
+        this.objects = objects;
+    }
+
+    @Override
+    public int numOfFeatures() {
+        return features.size();
+    }
+
+    @Override
+    public Predicate<T> getFeature(int feature) {
+        return features.get(feature);
+    }
+
+    @Override
+    public boolean test(int feature, int row) {
+        return features.get(feature).test(objects.get(row));
+    }
+
+    @Override
+    public LeafCounter newLeafCounter(int[] rows, int from, int to, int[] labels, int numOfLabels) {
+        return (feature, trueCounts) -> {
+            Predicate<T> predicate = features.get(feature);
+            Arrays.fill(trueCounts, 0);
+            int trueSize = 0;
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                if (predicate.test(objects.get(row))) {
+                    trueCounts[labels[row]]++;
+                    trueSize++;
+                }
+            }
+            return trueSize;
+        };
+    }
+}
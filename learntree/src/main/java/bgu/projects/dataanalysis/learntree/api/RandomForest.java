@@ -0,0 +1,272 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Class that implements a bagged ensemble (random forest) of {@link DecisionTree}s
+ * Every tree is trained on a bootstrap sample of the training data set and a random subset of the feature groups,
+ * drawn from its own seed, so a forest depends on its seed only and not on how the trees were scheduled
+ * The trees are trained concurrently, each on a single thread, and share the features tested on the data set
+ * The forest predicts the label most of its trees predict, ties go to the first label in the label order
+ * @param <T> - The class type
+ */
+public class RandomForest<T> implements Classifier<T>, Serializable {
+
+    /**
+     * The serialVersionUID of the forests already written, so they remain readable
+     */
+    private static final long serialVersionUID = -16491454809712123L;
+
+    /**
+     * Minimal batch size for which {@link #predictAll(List)} runs in parallel
+     */
+    private static final int PARALLEL_PREDICTION_THRESHOLD = 1 << 10;
+
+    /**
+     * Number of objects that pass through every tree together while predicting a batch
+     */
+    private static final int BLOCK_SIZE = 1 << 8;
+
+    private final List<DecisionTree<T>> trees;
+    private final LabelDictionary dictionary;
+    /**
+     * Forest label id of every label id of every compiled tree, or null for a tree which is not compiled
+     */
+    private transient volatile int[][] labelMaps;
+
+    private RandomForest(List<DecisionTree<T>> trees, LabelDictionary dictionary) {
+        this.trees = Collections.unmodifiableList(new ArrayList<>(trees));
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Function to create a forest of given trees
+     * @param trees - the trees
+     * @param dictionary - dictionary of all the labels the trees predict
+     * @return new forest
+     */
+    public static <T> RandomForest<T> of(@NonNull List<DecisionTree<T>> trees, @NonNull LabelDictionary dictionary) {
+        if (trees.isEmpty())
+            throw new IllegalArgumentException("RandomForest: no trees");
+        return new RandomForest<>(trees, dictionary);
+    }
+
+    /**
+     * Function to build a random forest of 'ID3' trees
+     * using a training data set of <label,object> pairs, a set of features and the size of the trees
+     * @param features - A collection of predicate objects which have a boolean testing method
+     * @param trainingDataSet - The training data set to learn
+     * @param numOfTrees - number of trees
+     * @param treeSize - number of splits of every tree
+     * @param featurePercentage - percentage of the feature groups every tree is trained on,
+     *                          an integer with values between 0 and 100, every tree gets at least one group
+     *                          (the thresholds of a single value are one group, see {@link ThresholdFeature})
+     * @param seed - seed from which the bootstrap samples and feature subsets are drawn
+     * @param options - training settings, the trees are trained concurrently in its pool,
+     *                and its listener receives the iterations of all the trees
+     * @return the forest
+     */
+    public static <T> RandomForest<T> build(@NonNull Collection<Predicate<T>> features,
+                                            @NonNull DataSet<T> trainingDataSet,
+                                            int numOfTrees,
+                                            int treeSize,
+                                            int featurePercentage,
+                                            long seed,
+                                            @NonNull TrainingOptions options) {
+        if (numOfTrees < 1)
+            throw new IllegalArgumentException("Number of trees: not a legal value");
+        DataSetSplits.checkPercentage(featurePercentage);
+        Tuple3<FeatureSource<T>, int[], int[]> source = TreeBuilder.sourceOf(features, trainingDataSet);
+        LabelDictionary dictionary = trainingDataSet.getLabelDictionary();
+        long[] treeSeeds = new Random(seed).longs(numOfTrees).toArray();
+        TrainingOptions treeOptions = TrainingOptions.defaults().withParallelism(1)
+                .withListener(options.getListener());
+        List<DecisionTree<T>> trees = new ArrayList<>(Collections.nCopies(numOfTrees, null));
+        IntStream indices = IntStream.range(0, numOfTrees);
+        ForkJoinPool pool = options.getPool();
+        if (pool == null)
+            indices.forEach(i -> trees.set(i, buildTree(source, dictionary, treeSize, featurePercentage,
+                    treeSeeds[i], treeOptions)));
+        else
+            pool.submit(() -> indices.parallel().forEach(i -> trees.set(i, buildTree(source, dictionary, treeSize,
+                    featurePercentage, treeSeeds[i], treeOptions)))).join();
+        return new RandomForest<>(trees, dictionary);
+    }
+
+    /**
+     * Function to build a single tree of a forest
+     * @param source - tuple of the feature source, the rows of the training samples and the label id of every row
+     * @param dictionary - dictionary of the label ids
+     * @param treeSize - number of splits of the tree
+     * @param featurePercentage - percentage of the feature groups the tree is trained on
+     * @param seed - seed of the tree's bootstrap sample and feature subset
+     * @param options - training settings of the tree
+     * @return the tree
+     */
+    private static <T> DecisionTree<T> buildTree(Tuple3<FeatureSource<T>, int[], int[]> source,
+                                                 LabelDictionary dictionary,
+                                                 int treeSize,
+                                                 int featurePercentage,
+                                                 long seed,
+                                                 TrainingOptions options) {
+        Random random = new Random(seed);
+        int[] rows = source.getT2();
+        int[] sample = DataSetSplits.bootstrap(rows.length, random);
+        for (int i = 0; i < sample.length; i++)
+            sample[i] = rows[sample[i]];
+        int numOfGroups = source.getT1().numOfGroups();
+        int[] groups = DataSetSplits.split(numOfGroups, featurePercentage, random)[0];
+        if (groups.length == 0 && numOfGroups > 0)
+            groups = new int[] {random.nextInt(numOfGroups)};
+        FeatureSource<T> subset = new FeatureSubsetSource<>(source.getT1(), groups);
+        return new TreeBuilder<>(subset, sample, source.getT3(), dictionary.getNames(), options)
+                .build(new int[] {treeSize}).get(0);
+    }
+
+    /**
+     * This method predicts the label of the given object by the majority vote of the trees
+     * @param toPredict - the object to predict it's matching label
+     * @return the label matching the given object
+     */
+    @Override
+    public String predict(T toPredict) {
+        String[] labels = new String[1];
+        predictBlock(Collections.singletonList(toPredict), 0, 1, labels);
+        return labels[0];
+    }
+
+    /**
+     * This method predicts the labels of a batch of objects, in parallel for large batches
+     * The batch is divided into blocks, and every block passes through one tree after the other,
+     * so the nodes of a tree are reused by the whole block while they are cached
+     * @param toPredict - the objects to predict their matching labels
+     * @return array of the labels matching the objects, in the objects' order
+     */
+    @Override
+    public String[] predictAll(@NonNull List<? extends T> toPredict) {
+        String[] labels = new String[toPredict.size()];
+        int numOfBlocks = (labels.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream blocks = IntStream.range(0, numOfBlocks);
+        if (labels.length >= PARALLEL_PREDICTION_THRESHOLD)
+            blocks = blocks.parallel();
+        blocks.forEach(block -> predictBlock(toPredict, block * BLOCK_SIZE,
+                Math.min(labels.length, (block + 1) * BLOCK_SIZE), labels));
+        return labels;
+    }
+
+    /**
+     * Method to predict the labels of a block of objects
+     * @param toPredict - the objects
+     * @param from - first object of the block (inclusive)
+     * @param to - last object of the block (exclusive)
+     * @param labels - output array of the labels, indexed like the objects
+     */
+    private void predictBlock(List<? extends T> toPredict, int from, int to, String[] labels) {
+        int numOfLabels = dictionary.size();
+        int[] votes = new int[(to - from) * numOfLabels];
+        int[][] labelMaps = labelMaps();
+        for (int t = 0; t < trees.size(); t++) {
+            DecisionTree<T> tree = trees.get(t);
+            CompiledDecisionTree<T> compiled = tree.compile();
+            GeneratedDecisionTree generated = tree.generated;
+            int[] labelMap = labelMaps[t];
+            for (int i = from; i < to; i++) {
+                T object = toPredict.get(i);
+                int label;
+                if (labelMap != null && generated != null && object instanceof ByteFeatureVector) {
+                    ByteFeatureVector vector = (ByteFeatureVector) object;
+                    label = generated.predictLabelId(vector.getValues(), vector.getOffset());
+                    label = label < 0 ? -1 : labelMap[label];
+                }
+                else if (labelMap != null && object instanceof FeatureVector) {
+                    label = compiled.predictLabelId((FeatureVector) object);
+                    label = label < 0 ? -1 : labelMap[label];
+                }
+                else
+                    label = dictionary.idOf(tree.predict(object));
+                if (label >= 0)
+                    votes[(i - from) * numOfLabels + label]++;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            int best = -1;
+            int bestVotes = 0;
+            for (int l = 0, offset = (i - from) * numOfLabels; l < numOfLabels; l++) {
+                if (votes[offset + l] > bestVotes) {
+                    bestVotes = votes[offset + l];
+                    best = l;
+                }
+            }
+            labels[i] = best < 0 ? null : dictionary.nameOf(best);
+        }
+    }
+
+    /**
+     * Method to generate the code of every tree, see {@link DecisionTree#generateCode()}
+     * Trees whose code can not be generated stay predicted by their compiled form
+     * @return true if all the trees are predicted by generated code
+     */
+    @Override
+    public boolean generateCode() {
+        boolean all = true;
+        for (DecisionTree<T> tree : trees)
+            all &= tree.generateCode();
+        return all;
+    }
+
+    /**
+     * Method to return the forest label ids of the labels of the compiled trees, which are created on first use
+     * @return array of the label map of every tree
+     */
+    private int[][] labelMaps() {
+        int[][] maps = labelMaps;
+        if (maps == null) {
+            maps = new int[trees.size()][];
+            for (int t = 0; t < maps.length; t++) {
+                CompiledDecisionTree<T> compiled = trees.get(t).compile();
+                if (compiled == null)
+                    continue;
+                String[] treeLabels = compiled.getLabelNames();
+                maps[t] = new int[treeLabels.length];
+                for (int l = 0; l < treeLabels.length; l++)
+                    maps[t][l] = dictionary.idOf(treeLabels[l]);
+            }
+            labelMaps = maps;
+        }
+        return maps;
+    }
+
+    /**
+     * Method to return the forest of the trees after a given number of splits, as views sharing this forest's nodes
+     * @param numOfSplits - number of splits
+     * @return forest of the snapshots of the trees, see {@link DecisionTree#snapshot(int)}
+     */
+    public RandomForest<T> snapshot(int numOfSplits) {
+        List<DecisionTree<T>> snapshots = new ArrayList<>(trees.size());
+        for (DecisionTree<T> tree : trees)
+            snapshots.add(tree.snapshot(numOfSplits));
+        return new RandomForest<>(snapshots, dictionary);
+    }
+
+    /**
+     * Method to return the trees of this forest
+     * @return unmodifiable list of the trees
+     */
+    public List<DecisionTree<T>> getTrees() {
+        return trees;
+    }
+
+    /**
+     * Method to return the dictionary of the labels this forest predicts
+     * @return the label dictionary
+     */
+    public LabelDictionary getLabelDictionary() {
+        return dictionary;
+    }
+}
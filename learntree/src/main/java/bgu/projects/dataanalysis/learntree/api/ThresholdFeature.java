@@ -0,0 +1,31 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.function.Predicate;
+
+/**
+ * Feature which tests whether a single value of a {@link FeatureVector} is greater than a threshold
+ * Unlike an arbitrary predicate, the index and threshold of this feature are visible to
+ * {@link DecisionTree}, which uses them to compile trees of such features
+ * This object is immutable
+ * @param <T> - The class type
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public class ThresholdFeature<T extends FeatureVector> implements Predicate<T>, Serializable {
+
+    private final int index;
+    private final int threshold;
+
+    @Override
+    public boolean test(T t) {
+        return t.getValue(index) > threshold;
+    }
+}
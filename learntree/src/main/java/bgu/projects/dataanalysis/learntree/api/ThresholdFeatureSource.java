@@ -0,0 +1,743 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Class that implements {@link FeatureSource} for {@link ThresholdFeature}s over columns of unsigned byte values
+ * Consecutive features on the same value with ascending thresholds between 0 and 254 form a group,
+ * which is evaluated in a single pass over a leaf: the pass builds a histogram of the leaf's labels
+ * per bucket of values between consecutive thresholds, and the counts of the group's thresholds are derived
+ * from it once per distinct split
+ * A counter which keeps its histograms lets the larger leaf created by splitting its leaf derive its own
+ * histograms by subtracting the smaller leaf's, so only the smaller leaf's samples are read
+ * A source bound to the rows of a training run reads the values of the groups from copies of their columns,
+ * which are partitioned like the rows, so the values of every leaf are consecutive rather than scattered
+ * A feature alone in its group is counted directly, by the {@link Kernel} of the source
+ * @param <T> - The class type
+ */
+class ThresholdFeatureSource<T> implements FeatureSource<T> {
+
+    /**
+     * Number of different byte values
+     */
+    private static final int NUM_OF_BINS = 256;
+
+    /**
+     * Minimal number of a leaf's samples per entry of a group's histogram, on average, for which its counts are kept:
+     * subtracting a histogram reads all its entries, and deriving the counts of smaller leaves
+     * is no faster than counting their samples
+     */
+    private static final int MIN_KEPT_SAMPLES_PER_ENTRY = 8;
+
+    private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long ONES = 0x0101010101010101L;
+
+    /**
+     * Ways to count the samples of a leaf which pass a single feature
+     * SCALAR - a branch per sample, which the CPU mispredicts when about half of the samples pass
+     * BRANCH_FREE - adds the comparison's result to the counts of every sample's label
+     * SWAR - compares 8 values of a column at once as bytes of a long, when the leaf's rows are consecutive
+     * (as in the root leaf), and then counts the passing samples one by one
+     * On JDK 8 the per label counting dominates, and branch free counting is the fastest
+     * (see SplitCountingBenchmark in the benchmarks module)
+     */
+    enum Kernel {
+        SCALAR, BRANCH_FREE, SWAR
+    }
+
+    private final List<Predicate<T>> features;
+    private final ByteBuffer[] columns;
+    private final byte[][] arrays;
+    /**
+     * Views of the columns which read longs in little endian order, so the k-th byte of a long is the k-th row
+     */
+    private final ByteBuffer[] littleEndianColumns;
+    private final int[] featureColumns;
+    private final int[] thresholds;
+    private final int[] groupStarts;
+    /**
+     * The bucket of every value for every group: the number of the group's thresholds below the value
+     */
+    private final byte[][] buckets;
+    /**
+     * Index of every group's first bucket in the kept histograms of a leaf, followed by the number of buckets
+     * (groups of a single feature, and groups a bound source does not count, have no buckets)
+     */
+    private final int[] bucketStarts;
+    /**
+     * Number of the groups with buckets
+     */
+    private final int numOfHistograms;
+    private final ThreadLocal<int[]> histograms = ThreadLocal.withInitial(() -> new int[0]);
+    private Kernel kernel = Kernel.BRANCH_FREE;
+    /**
+     * The rows of the training run the source is bound to (see {@link #forRows}), or null
+     */
+    private final int[] boundRows;
+    /**
+     * Copies of the columns of the groups the run counts, of the rows and of their labels, which hold the samples
+     * of every leaf in the leaf's range of the bound rows
+     */
+    private final byte[][] leafColumns;
+    private final int[] leafRows;
+    private final int[] leafLabels;
+    /**
+     * Pairs of indices swapped by partitioning the copies
+     */
+    private final int[] swaps;
+
+    private ThresholdFeatureSource(List<Predicate<T>> features, ByteBuffer[] columns) {
+        this.features = features;
+        this.columns = columns;
+        this.arrays = new byte[columns.length][];
+        this.littleEndianColumns = new ByteBuffer[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c] != null && columns[c].hasArray() && columns[c].arrayOffset() == 0)
+                arrays[c] = columns[c].array();
+            if (columns[c] != null)
+                littleEndianColumns[c] = columns[c].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.featureColumns = new int[features.size()];
+        this.thresholds = new int[features.size()];
+        int[] starts = new int[features.size() + 1];
+        int numOfGroups = 0;
+        for (int f = 0; f < featureColumns.length; f++) {
+            ThresholdFeature<?> feature = (ThresholdFeature<?>) features.get(f);
+            featureColumns[f] = feature.getIndex();
+            thresholds[f] = feature.getThreshold();
+            if (f == 0 || !inHistogram(f) || !inHistogram(f - 1) ||
+                    featureColumns[f] != featureColumns[f - 1] || thresholds[f] <= thresholds[f - 1])
+                starts[numOfGroups++] = f;
+        }
+        starts[numOfGroups] = featureColumns.length;
+        this.groupStarts = Arrays.copyOf(starts, numOfGroups + 1);
+        this.buckets = new byte[numOfGroups][];
+        this.bucketStarts = new int[numOfGroups + 1];
+        int histogramGroups = 0;
+        for (int g = 0; g < numOfGroups; g++) {
+            int groupSize = groupStarts[g + 1] - groupStarts[g];
+            bucketStarts[g + 1] = bucketStarts[g] + (groupSize > 1 ? groupSize + 1 : 0);
+            if (groupSize == 1)
+                continue;
+            histogramGroups++;
+            buckets[g] = new byte[NUM_OF_BINS];
+            for (int value = 0, bucket = 0; value < NUM_OF_BINS; value++) {
+                if (bucket < groupSize && thresholds[groupStarts[g] + bucket] < value)
+                    bucket++;
+                buckets[g][value] = (byte) bucket;
+            }
+        }
+        this.numOfHistograms = histogramGroups;
+        this.boundRows = null;
+        this.leafColumns = null;
+        this.leafRows = null;
+        this.leafLabels = null;
+        this.swaps = null;
+    }
+
+    /**
+     * Constructor of a copy of a source which is bound to the rows of a training run
+     * @param source - the source
+     * @param rows - the rows of the run's samples
+     * @param labels - label id of every row
+     * @param groups - the groups the run counts, in ascending order, or null for all the groups
+     */
+    private ThresholdFeatureSource(ThresholdFeatureSource<T> source, int[] rows, int[] labels, int[] groups) {
+        this.features = source.features;
+        this.columns = source.columns;
+        this.arrays = source.arrays;
+        this.littleEndianColumns = source.littleEndianColumns;
+        this.featureColumns = source.featureColumns;
+        this.thresholds = source.thresholds;
+        this.groupStarts = source.groupStarts;
+        this.buckets = source.buckets;
+        this.kernel = source.kernel;
+        this.boundRows = rows;
+        this.leafColumns = new byte[columns.length][];
+        boolean[] counted = new boolean[numOfGroups()];
+        if (groups == null)
+            Arrays.fill(counted, true);
+        else
+            for (int g : groups)
+                counted[g] = true;
+        this.bucketStarts = new int[numOfGroups() + 1];
+        int histogramGroups = 0;
+        for (int g = 0; g < numOfGroups(); g++) {
+            int numOfBuckets = counted[g] ? source.bucketStarts[g + 1] - source.bucketStarts[g] : 0;
+            bucketStarts[g + 1] = bucketStarts[g] + numOfBuckets;
+            if (numOfBuckets > 0)
+                histogramGroups++;
+            int column = featureColumns[groupStarts[g]];
+            if (!counted[g] || buckets[g] == null || leafColumns[column] != null)
+                continue;
+            byte[] values = new byte[rows.length];
+            for (int i = 0; i < rows.length; i++)
+                values[i] = columns[column].get(rows[i]);
+            leafColumns[column] = values;
+        }
+        this.numOfHistograms = histogramGroups;
+        this.leafRows = rows.clone();
+        this.leafLabels = new int[rows.length];
+        for (int i = 0; i < rows.length; i++)
+            leafLabels[i] = labels[rows[i]];
+        this.swaps = new int[rows.length];
+    }
+
+    /**
+     * Function to create a feature source over columns
+     * @param features - the features
+     * @param columns - buffers of the value columns, each holds one byte per row from index 0
+     * @return feature source, or null if some feature is not a {@link ThresholdFeature} of an existing column
+     */
+    static <T> ThresholdFeatureSource<T> of(List<Predicate<T>> features, ByteBuffer[] columns) {
+        for (Predicate<T> feature : features) {
+            if (!(feature instanceof ThresholdFeature))
+                return null;
+            int index = ((ThresholdFeature<?>) feature).getIndex();
+            if (index < 0 || index >= columns.length || columns[index] == null)
+                return null;
+        }
+        return new ThresholdFeatureSource<>(features, columns);
+    }
+
+    /**
+     * Function to create a feature source over objects, by copying the values the features test into columns
+     * @param features - the features
+     * @param objects - the objects, referred to by their index in the list
+     * @return feature source, or null if some feature is not a {@link ThresholdFeature}
+     *         or some tested value is not between 0 and 255
+     */
+    static <T> ThresholdFeatureSource<T> of(List<Predicate<T>> features, List<T> objects) {
+        int numOfColumns = 0;
+        for (Predicate<T> feature : features) {
+            if (!(feature instanceof ThresholdFeature) || ((ThresholdFeature<?>) feature).getIndex() < 0)
+                return null;
+            numOfColumns = Math.max(numOfColumns, ((ThresholdFeature<?>) feature).getIndex() + 1);
+        }
+        byte[][] values = new byte[numOfColumns][];
+        for (Predicate<T> feature : features) {
+            int index = ((ThresholdFeature<?>) feature).getIndex();
+            if (values[index] == null)
+                values[index] = new byte[objects.size()];
+        }
+        for (int row = 0; row < objects.size(); row++) {
+            FeatureVector object = (FeatureVector) objects.get(row);
+            for (int index = 0; index < numOfColumns; index++) {
+                if (values[index] == null)
+                    continue;
+                int value = object.getValue(index);
+                if (value < 0 || value >= NUM_OF_BINS)
+                    return null;
+                values[index][row] = (byte) value;
+            }
+        }
+        ByteBuffer[] columns = new ByteBuffer[numOfColumns];
+        for (int index = 0; index < numOfColumns; index++)
+            if (values[index] != null)
+                columns[index] = ByteBuffer.wrap(values[index]);
+        return new ThresholdFeatureSource<>(features, columns);
+    }
+
+    /**
+     * Method to set the way features alone in their group are counted
+     * @param kernel - the kernel
+     * @return this source
+     */
+    ThresholdFeatureSource<T> withKernel(Kernel kernel) {
+        this.kernel = kernel;
+        return this;
+    }
+
+    @Override
+    public int numOfFeatures() {
+        return featureColumns.length;
+    }
+
+    @Override
+    public int numOfGroups() {
+        return groupStarts.length - 1;
+    }
+
+    @Override
+    public int firstFeatureOf(int group) {
+        return groupStarts[group];
+    }
+
+    @Override
+    public Predicate<T> getFeature(int feature) {
+        return features.get(feature);
+    }
+
+    @Override
+    public boolean test(int feature, int row) {
+        return (columns[featureColumns[feature]].get(row) & 0xff) > thresholds[feature];
+    }
+
+    /**
+     * {@inheritDoc}
+     * The bound source copies the values of the groups' columns, unless every feature is a group of its own
+     */
+    @Override
+    public FeatureSource<T> forRows(int[] rows, int[] labels) {
+        return bucketStarts[numOfGroups()] == 0 ? this : new ThresholdFeatureSource<>(this, rows, labels, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the columns of the given groups are copied and partitioned, and only their counts are kept
+     */
+    @Override
+    public FeatureSource<T> forRows(int[] rows, int[] labels, int[] groups) {
+        return bucketStarts[numOfGroups()] == 0 ? this : new ThresholdFeatureSource<>(this, rows, labels, groups);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copies of a bound source are partitioned too, by swapping the passing samples among the first ones
+     * with the failing samples among the last ones, so the order of their samples differs from the rows'
+     */
+    @Override
+    public int partition(int[] rows, int from, int to, int feature, int[] scratch) {
+        int write = FeatureSource.super.partition(rows, from, to, feature, scratch);
+        if (rows != boundRows)
+            return write;
+        byte[] featureValues = leafColumns[featureColumns[feature]];
+        int threshold = thresholds[feature];
+        int numOfSwaps = 0;
+        for (int i = from, j = to - 1; ; i++, j--) {
+            while (i < j && !(featureValues != null ? (featureValues[i] & 0xff) > threshold :
+                    test(feature, leafRows[i])))
+                i++;
+            while (i < j && (featureValues != null ? (featureValues[j] & 0xff) > threshold :
+                    test(feature, leafRows[j])))
+                j--;
+            if (i >= j)
+                break;
+            swaps[numOfSwaps++] = i;
+            swaps[numOfSwaps++] = j;
+        }
+        swap(leafRows, numOfSwaps);
+        swap(leafLabels, numOfSwaps);
+        for (byte[] values : leafColumns)
+            if (values != null)
+                swap(values, numOfSwaps);
+        return write;
+    }
+
+    private void swap(int[] values, int numOfSwaps) {
+        for (int k = 0; k < numOfSwaps; k += 2) {
+            int value = values[swaps[k]];
+            values[swaps[k]] = values[swaps[k + 1]];
+            values[swaps[k + 1]] = value;
+        }
+    }
+
+    private void swap(byte[] values, int numOfSwaps) {
+        for (int k = 0; k < numOfSwaps; k += 2) {
+            byte value = values[swaps[k]];
+            values[swaps[k]] = values[swaps[k + 1]];
+            values[swaps[k + 1]] = value;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The rows of a leaf are in ascending order, so counting reads a column sequentially
+     */
+    @Override
+    public LeafCounter newLeafCounter(int[] rows, int from, int to, int[] labels, int numOfLabels) {
+        return new Counter(rows, from, to, labels, numOfLabels);
+    }
+
+    /**
+     * Function to estimate the memory a source over features allocates per row of a training run it is bound to:
+     * the copies of the rows, their labels and their swaps, and a byte per row of every column with a group
+     * @param features - the features of the source
+     * @return estimated number of bytes per row, 0 if the features would not form a source with groups
+     */
+    static long boundBytesPerRow(Collection<? extends Predicate<?>> features) {
+        Set<Integer> groupColumns = new HashSet<>();
+        ThresholdFeature<?> previous = null;
+        for (Predicate<?> feature : features) {
+            if (!(feature instanceof ThresholdFeature))
+                return 0;
+            ThresholdFeature<?> current = (ThresholdFeature<?>) feature;
+            if (previous != null && previous.getIndex() == current.getIndex() &&
+                    previous.getThreshold() >= 0 && previous.getThreshold() < current.getThreshold() &&
+                    current.getThreshold() < NUM_OF_BINS - 1)
+                groupColumns.add(current.getIndex());
+            previous = current;
+        }
+        return groupColumns.isEmpty() ? 0 : 3L * Integer.BYTES + groupColumns.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The counts are derived when both given counters are counters of this source which keep their counts
+     */
+    @Override
+    public LeafCounter newLeafCounter(int[] rows, int from, int to, int[] labels, int numOfLabels,
+                                      LeafCounter parent, LeafCounter sibling) {
+        Counter counter = new Counter(rows, from, to, labels, numOfLabels);
+        if (isKeeping(parent) && isKeeping(sibling))
+            counter.derive((KeptCounts) parent, (KeptCounts) sibling);
+        return counter;
+    }
+
+    @Override
+    public long keptCountsBytes(int numOfLabels) {
+        return (long) Integer.BYTES * bucketStarts[numOfGroups()] * numOfLabels;
+    }
+
+    private boolean isKeeping(LeafCounter counter) {
+        return counter instanceof KeptCounts && ((KeptCounts) counter).source() == this &&
+                ((KeptCounts) counter).kept != null;
+    }
+
+    /**
+     * Class to hold the histograms a counter keeps, in one array in which every group's histogram
+     * starts at its first bucket (see {@link #bucketStarts}) times the number of labels
+     */
+    private abstract static class KeptCounts implements LeafCounter {
+
+        /**
+         * The kept histograms, or null if the counter does not keep them
+         */
+        int[] kept;
+        /**
+         * Whether the kept histogram of every group holds the leaf's counts
+         */
+        boolean[] counted;
+        /**
+         * The counter whose histograms are subtracted from the kept histograms of the split leaf, and
+         * which of the split leaf's histograms were counted, when the counter derives its histograms
+         */
+        KeptCounts sibling;
+        boolean[] parentCounted;
+
+        abstract ThresholdFeatureSource<?> source();
+
+        /**
+         * Method to take over the kept histograms of the split leaf, from which the histograms of the sibling are
+         * subtracted group by group as the groups are counted
+         */
+        void derive(KeptCounts parent, KeptCounts sibling) {
+            kept = parent.kept;
+            parentCounted = parent.counted;
+            counted = new boolean[parentCounted.length];
+            this.sibling = sibling;
+            parent.release();
+        }
+
+        @Override
+        public void release() {
+            kept = null;
+            counted = null;
+            sibling = null;
+            parentCounted = null;
+        }
+    }
+
+    /**
+     * Class to count the samples of a leaf
+     */
+    private class Counter extends KeptCounts {
+
+        private final int[] rows;
+        private final int from;
+        private final int to;
+        private final int[] labels;
+        private final int numOfLabels;
+        /**
+         * Whether the groups' values are read from the copies of the bound source
+         */
+        private final boolean bound;
+        /**
+         * Count of every label among the leaf's samples, if the source has groups
+         */
+        private final int[] totalCounts;
+        /**
+         * Whether the leaf's rows are consecutive, checked on first use, see {@link Kernel#SWAR}
+         */
+        private Boolean consecutive;
+
+        Counter(int[] rows, int from, int to, int[] labels, int numOfLabels) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.labels = labels;
+            this.numOfLabels = numOfLabels;
+            this.bound = rows == boundRows;
+            this.totalCounts = bucketStarts[numOfGroups()] == 0 ? null : new int[numOfLabels];
+            if (totalCounts != null)
+                for (int i = from; i < to; i++)
+                    totalCounts[bound ? leafLabels[i] : labels[rows[i]]]++;
+        }
+
+        @Override
+        ThresholdFeatureSource<T> source() {
+            return ThresholdFeatureSource.this;
+        }
+
+        /**
+         * {@inheritDoc}
+         * Counts are kept only if the leaf is large enough, see {@link #MIN_KEPT_SAMPLES_PER_ENTRY}
+         */
+        @Override
+        public boolean keepGroupCounts() {
+            if (kept == null) {
+                long entries = (long) bucketStarts[numOfGroups()] * numOfLabels;
+                if ((long) (to - from) * numOfHistograms < MIN_KEPT_SAMPLES_PER_ENTRY * entries)
+                    return false;
+                kept = new int[bucketStarts[numOfGroups()] * numOfLabels];
+                counted = new boolean[numOfGroups()];
+            }
+            return true;
+        }
+
+        @Override
+        public int countTrue(int feature, int[] trueCounts) {
+            int column = featureColumns[feature];
+            int threshold = thresholds[feature];
+            Arrays.fill(trueCounts, 0);
+            if (kernel == Kernel.SCALAR || !inHistogram(feature))
+                return countScalar(column, threshold, trueCounts);
+            if (kernel == Kernel.SWAR && isConsecutive())
+                return countSwar(column, threshold, trueCounts);
+            return countBranchFree(column, threshold, trueCounts);
+        }
+
+        private boolean isConsecutive() {
+            if (consecutive == null) {
+                boolean rowsConsecutive = true;
+                for (int i = from + 1; i < to && rowsConsecutive; i++)
+                    rowsConsecutive = rows[i] == rows[i - 1] + 1;
+                consecutive = rowsConsecutive;
+            }
+            return consecutive;
+        }
+
+        private int countScalar(int column, int threshold, int[] trueCounts) {
+            ByteBuffer values = columns[column];
+            int trueSize = 0;
+            for (int i = from; i < to; i++) {
+                int row = rows[i];
+                if ((values.get(row) & 0xff) > threshold) {
+                    trueCounts[labels[row]]++;
+                    trueSize++;
+                }
+            }
+            return trueSize;
+        }
+
+        /**
+         * Method to count with the sign bit of threshold - value, which is 1 exactly when the value is greater
+         * (the threshold is between 0 and 254)
+         */
+        private int countBranchFree(int column, int threshold, int[] trueCounts) {
+            int trueSize = 0;
+            if (arrays[column] != null) {
+                byte[] values = arrays[column];
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    int passes = (threshold - (values[row] & 0xff)) >>> 31;
+                    trueCounts[labels[row]] += passes;
+                    trueSize += passes;
+                }
+            }
+            else {
+                ByteBuffer values = columns[column];
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    int passes = (threshold - (values.get(row) & 0xff)) >>> 31;
+                    trueCounts[labels[row]] += passes;
+                    trueSize += passes;
+                }
+            }
+            return trueSize;
+        }
+
+        /**
+         * Method to count the leaf's consecutive rows 8 at a time: the high bit of every byte of
+         * the low 7 bits of the values plus 127 - the threshold's low 7 bits tells whether the low bits
+         * are greater, which together with the value's own high bit tells whether the value is greater
+         * (the threshold is between 0 and 254)
+         */
+        private int countSwar(int column, int threshold, int[] trueCounts) {
+            ByteBuffer values = littleEndianColumns[column];
+            long addend = ONES * (127 - (threshold & 0x7f));
+            boolean highThreshold = threshold >= 128;
+            int first = to > from ? rows[from] : 0;
+            int end = first + (to - from);
+            int trueSize = 0;
+            int row = first;
+            for (; row + Long.BYTES <= end; row += Long.BYTES) {
+                long word = values.getLong(row);
+                long lowGreater = (word & LOW_BITS) + addend;
+                long greater = (highThreshold ? lowGreater & word : lowGreater | word) & HIGH_BITS;
+                for (; greater != 0; greater &= greater - 1) {
+                    trueCounts[labels[row + (Long.numberOfTrailingZeros(greater) >>> 3)]]++;
+                    trueSize++;
+                }
+            }
+            for (; row < end; row++) {
+                if ((values.get(row) & 0xff) > threshold) {
+                    trueCounts[labels[row]]++;
+                    trueSize++;
+                }
+            }
+            return trueSize;
+        }
+
+        /**
+         * {@inheritDoc}
+         * The histogram is swept once from the lowest bucket, and every threshold which reaches a nonempty bucket
+         * starts a run whose counts are the leaf's counts minus the counts of the buckets reached
+         */
+        @Override
+        public int countGroup(int first, int last, int numOfLabels,
+                              int[] trueCounts, int[] trueSizes, int[] runStarts) {
+            int group = Arrays.binarySearch(groupStarts, first);
+            int numOfBuckets = last - first + 1;
+            int length = numOfBuckets * numOfLabels;
+            int[] histogram;
+            int start;
+            if (kept != null) {
+                histogram = kept;
+                start = bucketStarts[group] * numOfLabels;
+            }
+            else {
+                histogram = histograms.get();
+                if (histogram.length < length) {
+                    histogram = new int[length];
+                    histograms.set(histogram);
+                }
+                start = 0;
+            }
+            // the histogram of a leaf with fewer samples than buckets is swept over its nonempty buckets only
+            long[] nonempty = to - from < numOfBuckets ? new long[(numOfBuckets + Long.SIZE - 1) / Long.SIZE] : null;
+            if (kept == null || !counted[group]) {
+                if (nonempty == null && sibling != null && parentCounted[group] && sibling.counted[group]) {
+                    int[] siblingHistogram = sibling.kept;
+                    for (int i = start; i < start + length; i++)
+                        histogram[i] -= siblingHistogram[i];
+                }
+                else {
+                    if (sibling != null)
+                        Arrays.fill(histogram, start, start + length, 0);
+                    if (nonempty == null)
+                        fill(histogram, start, group);
+                    else
+                        fillSmall(histogram, start, group, nonempty);
+                }
+                if (kept != null)
+                    counted[group] = true;
+            }
+            else if (nonempty != null)
+                Arrays.fill(nonempty, -1L);
+            int[] falseCounts = new int[numOfLabels];
+            int falseSize = 0;
+            int numOfRuns = 0;
+            // the bucket of a threshold holds the values above the previous threshold up to it,
+            // and the first threshold starts a run even if its bucket is empty
+            for (int b = 0; b < numOfBuckets - 1; b = nextBucket(nonempty, b + 1)) {
+                int base = start + b * numOfLabels;
+                int bucketSize = 0;
+                for (int l = 0; l < numOfLabels; l++) {
+                    falseCounts[l] += histogram[base + l];
+                    bucketSize += histogram[base + l];
+                }
+                if (b > 0 && bucketSize == 0)
+                    continue;
+                falseSize += bucketSize;
+                for (int l = 0; l < numOfLabels; l++)
+                    trueCounts[numOfRuns * numOfLabels + l] = totalCounts[l] - falseCounts[l];
+                trueSizes[numOfRuns] = to - from - falseSize;
+                runStarts[numOfRuns++] = b;
+                if (falseSize == to - from)
+                    break;
+            }
+            if (kept == null) {
+                if (nonempty == null)
+                    Arrays.fill(histogram, 0, length, 0);
+                else
+                    for (int b = nextBucket(nonempty, 0); b < numOfBuckets; b = nextBucket(nonempty, b + 1))
+                        Arrays.fill(histogram, b * numOfLabels, (b + 1) * numOfLabels, 0);
+            }
+            return numOfRuns;
+        }
+
+        /**
+         * Method to return the first nonempty bucket from a given bucket
+         * @param nonempty - bit set of the nonempty buckets, or null if all buckets are taken as nonempty
+         * @param bucket - the bucket
+         * @return the first nonempty bucket which is not lower than the given one, or beyond the last bucket
+         */
+        private int nextBucket(long[] nonempty, int bucket) {
+            if (nonempty == null)
+                return bucket;
+            int word = bucket / Long.SIZE;
+            if (word >= nonempty.length)
+                return bucket;
+            long bits = nonempty[word] & (-1L << bucket);
+            while (bits == 0 && ++word < nonempty.length)
+                bits = nonempty[word];
+            return bits == 0 ? nonempty.length * Long.SIZE : word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        }
+
+        /**
+         * Method to build the histogram of a group for a leaf with fewer samples than buckets,
+         * marking the nonempty buckets
+         */
+        private void fillSmall(int[] histogram, int start, int group, long[] nonempty) {
+            int column = featureColumns[groupStarts[group]];
+            byte[] bucketOf = buckets[group];
+            nonempty[0] = 1L;
+            for (int i = from; i < to; i++) {
+                int value = bound ? leafColumns[column][i] : columns[column].get(rows[i]);
+                int bucket = bucketOf[value & 0xff] & 0xff;
+                histogram[start + bucket * numOfLabels + (bound ? leafLabels[i] : labels[rows[i]])]++;
+                nonempty[bucket / Long.SIZE] |= 1L << bucket;
+            }
+        }
+
+        /**
+         * Method to build the histogram of a group, which starts zeroed at a given index
+         */
+        private void fill(int[] histogram, int start, int group) {
+            int column = featureColumns[groupStarts[group]];
+            byte[] bucketOf = buckets[group];
+            if (bound) {
+                byte[] values = leafColumns[column];
+                for (int i = from; i < to; i++)
+                    histogram[start + (bucketOf[values[i] & 0xff] & 0xff) * numOfLabels + leafLabels[i]]++;
+            }
+            else if (arrays[column] != null) {
+                byte[] values = arrays[column];
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    histogram[start + (bucketOf[values[row] & 0xff] & 0xff) * numOfLabels + labels[row]]++;
+                }
+            }
+            else {
+                ByteBuffer values = columns[column];
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    histogram[start + (bucketOf[values.get(row) & 0xff] & 0xff) * numOfLabels + labels[row]]++;
+                }
+            }
+        }
+    }
+
+    private boolean inHistogram(int feature) {
+        return thresholds[feature] >= 0 && thresholds[feature] < NUM_OF_BINS - 1;
+    }
+}
@@ -0,0 +1,17 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+/**
+ * Interface to receive the measurements of a {@link DecisionTree} training run, set by {@link TrainingOptions}
+ * The listener is called on the thread running the training, after every iteration
+ * Runs which train several trees concurrently, such as {@link CrossValidation} and {@link RandomForest},
+ * call the same listener from several threads, so such a listener must be thread safe
+ */
+@FunctionalInterface
+public interface TrainingListener {
+
+    /**
+     * Method called after every iteration of a training run
+     * @param metrics - the measurements of the iteration
+     */
+    void onIteration(IterationMetrics metrics);
+}
@@ -0,0 +1,139 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class to hold the optional settings of a {@link DecisionTree} training run
+ * Setters return this object so settings can be chained
+ */
+@Getter
+public class TrainingOptions {
+
+    /**
+     * The pool in which split search runs, or null for a single threaded training
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The listener which receives the measurements of every iteration, or null for a run without measurements
+     */
+    private TrainingListener listener;
+
+    /**
+     * The file the state of the training run is periodically written to, or null for a run without checkpoints
+     */
+    private String checkpointFilename;
+
+    /**
+     * Minimal time in milliseconds between two checkpoints of the training run
+     */
+    private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * Whether the training run continues from its checkpoint file, if there is one
+     */
+    private boolean resume;
+
+    private static final long DEFAULT_CHECKPOINT_INTERVAL = 60_000;
+
+    /**
+     * The pools created by {@link #withParallelism}, one per number of threads, shared by all the options which
+     * ask for it, so repeated runs reuse the same worker threads (which are daemon threads, and idle ones expire)
+     */
+    private static final ConcurrentMap<Integer, ForkJoinPool> SHARED_POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * Function to return the default options: split search runs in the common pool
+     * @return new options object
+     */
+    public static TrainingOptions defaults() {
+        return new TrainingOptions();
+    }
+
+    /**
+     * Method to set the pool in which split search runs
+     * @param pool - the pool to run in
+     * @return this options object
+     */
+    public TrainingOptions withPool(@NonNull ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Method to set the number of threads split search runs on
+     * Options of the same number of threads share a single pool
+     * @param threads - number of threads, 1 trains on the calling thread only
+     * @return this options object
+     */
+    public TrainingOptions withParallelism(int threads) {
+        this.pool = sharedPool(threads);
+        return this;
+    }
+
+    /**
+     * Function to return the shared pool of a number of threads
+     * @param threads - number of threads
+     * @return the pool of the number of threads, or null for 1 thread
+     */
+    static ForkJoinPool sharedPool(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Parallelism: not a legal value");
+        return threads == 1 ? null : SHARED_POOLS.computeIfAbsent(threads, ForkJoinPool::new);
+    }
+
+    /**
+     * Method to set the listener which receives the measurements of every iteration
+     * @param listener - the listener, or null to measure nothing
+     * @return this options object
+     */
+    public TrainingOptions withListener(TrainingListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Method to set the file a single training run periodically writes its state to, and the time between writes
+     * The state is written by a background thread, and the file is replaced only by a whole checkpoint
+     * Runs of {@link CrossValidation} and {@link RandomForest} are not checkpointed
+     * @param filename - the checkpoint file, or null for a run without checkpoints
+     * @param intervalMillis - minimal time in milliseconds between two checkpoints
+     * @return this options object
+     */
+    public TrainingOptions withCheckpoint(String filename, long intervalMillis) {
+        if (intervalMillis < 0)
+            throw new IllegalArgumentException("Checkpoint interval: not a legal value");
+        this.checkpointFilename = filename;
+        this.checkpointInterval = intervalMillis;
+        return this;
+    }
+
+    /**
+     * Method to set whether the training run continues from its checkpoint file, if there is one
+     * A resumed run builds exactly the tree of an uninterrupted run, provided its features and samples are the same
+     * @param resume - true to resume from the checkpoint
+     * @return this options object
+     */
+    public TrainingOptions withResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * Method to return these options for runs which must not share the checkpoint, such as concurrent runs
+     * @return these options if they have no checkpoint, or otherwise a copy of them without a checkpoint
+     */
+    TrainingOptions withoutCheckpoint() {
+        if (checkpointFilename == null)
+            return this;
+        TrainingOptions options = new TrainingOptions();
+        options.pool = pool;
+        options.listener = listener;
+        return options;
+    }
+}
@@ -0,0 +1,1167 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Class that holds the state of a single 'ID3' training run of {@link DecisionTree}
+ * All leaves share one array of sample indices, each leaf owns a range of it
+ * which is partitioned in place when the leaf is split, so evaluating a split
+ * only counts labels and never copies samples
+ * Split search runs across features, and across the leaves created by a split,
+ * in the pool given by {@link TrainingOptions}
+ * Leaves waiting to be split are kept in a max-heap ordered by their information gain
+ * Iterations are measured only when {@link TrainingOptions} has a listener
+ * The state of the run is checkpointed between iterations when {@link TrainingOptions} has a checkpoint file
+ * (see {@link TreeCheckpoint}), and a resumed run continues exactly as the interrupted one would have
+ * @param <T> - The class type
+ */
+class TreeBuilder<T> {
+
+    /**
+     * The features to train with, bound to the order of the samples when the run starts (see
+     * {@link FeatureSource#forRows}), after which the samples are reordered only by partitioning them
+     */
+    private FeatureSource<T> source;
+    private final int[] labels;
+    private final String[] labelNames;
+    private final int[] samples;
+    private final int[] scratch;
+    private final ForkJoinPool pool;
+    private final TrainingListener listener;
+    /**
+     * Bytes the run allocated on the pool's threads during the current iteration, or null if allocations
+     * are not measured
+     * Every task of the run adds what it allocated on its own thread, see {@link #measured} and {@link #join}
+     */
+    private final LongAdder allocations;
+    private final int maxGroupSize;
+    private final double[] xLogX;
+    private final String checkpointFilename;
+    private final long checkpointInterval;
+    private final boolean resume;
+    /**
+     * Maximal number of frontier leaves whose counters keep their group counts, see {@link #scoreNewLeaves}
+     */
+    private final int maxKeptLeaves;
+    private final List<Leaf<T>> keptLeaves = new ArrayList<>();
+    private int numOfLeaves;
+    /**
+     * Whether split search finds the runner-up split too, which is slower
+     */
+    private boolean trackRunnerUp;
+    /**
+     * The feature index of every split, indexed by the split's growth order
+     */
+    private int[] splitFeatures = new int[16];
+
+    /**
+     * Kinds of the nodes of a checkpoint: a label node, an unsplit leaf of the run, and a feature node
+     */
+    private static final byte LABEL_NODE = 0;
+    private static final byte OPEN_LEAF = 1;
+    private static final byte FEATURE_NODE = 2;
+
+    /**
+     * Order of the leaves frontier: highest gain first, ties go to the earlier created leaf
+     */
+    private static final Comparator<Leaf<?>> FRONTIER_ORDER = (a, b) -> {
+        int byGain = Double.compare(b.gain, a.gain);
+        return byGain != 0 ? byGain : Integer.compare(a.id, b.id);
+    };
+
+    /**
+     * Minimal amount of feature tests (leaf size times number of features)
+     * for which split search of a leaf is done in parallel
+     */
+    private static final long PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * Maximal count whose x*log(x) is tabulated
+     */
+    private static final int MAX_TABLE_SIZE = 1 << 20;
+
+    /**
+     * Margin by which a split's tabulated score may exceed the best weighted entropy
+     * and still be evaluated exactly, far above the rounding errors of both
+     */
+    private static final double SCORE_MARGIN = 1e-9;
+
+    /**
+     * Number of features evaluated by a single split search task
+     */
+    private static final int FEATURES_PER_TASK = 16;
+
+    /**
+     * Memory the group counts kept by leaf counters may take at once
+     */
+    private static final long KEPT_COUNTS_MEMORY = 32 << 20;
+
+    /**
+     * Class to hold the best split found over a range of features
+     */
+    private static class Candidate {
+        int feature = -1;
+        double weightedEntropy = Double.MAX_VALUE;
+        /**
+         * The minimal weighted entropy of the best splits of the other feature groups,
+         * exact only in runs which track the runner-up
+         */
+        double runnerUpWeightedEntropy = Double.MAX_VALUE;
+        int[] trueCounts;
+        long scored;
+
+        /**
+         * Function to choose the better of two candidates, preferring the lower feature index on ties
+         * so the result does not depend on how the features were divided between tasks
+         * The candidates are of different feature groups, so the other one is a runner-up of the chosen one
+         */
+        static Candidate better(Candidate a, Candidate b) {
+            Candidate winner = b.feature >= 0 && (a.feature < 0 || b.weightedEntropy < a.weightedEntropy ||
+                    (b.weightedEntropy == a.weightedEntropy && b.feature < a.feature)) ? b : a;
+            Candidate loser = winner == a ? b : a;
+            winner.runnerUpWeightedEntropy = Math.min(loser.weightedEntropy,
+                    Math.min(a.runnerUpWeightedEntropy, b.runnerUpWeightedEntropy));
+            return winner;
+        }
+    }
+
+    /**
+     * Class to hold a leaf under construction together with its best split
+     * @param <T> - The class type
+     */
+    private static class Leaf<T> {
+        int id;
+        DecisionTree.LabelNode<T> node;
+        int from;
+        int to;
+        int[] usedFeatures;
+        int[] labelCounts;
+        int bestFeature = -1;
+        int[] bestTrueCounts;
+        double gain;
+        /**
+         * Information gain of the best split of another feature group, see {@link #update}
+         */
+        double runnerUpGain;
+        long candidatesScored;
+        /**
+         * Counter of the leaf's samples, held between scoring and splitting the leaf only if it keeps its counts
+         */
+        FeatureSource.LeafCounter counter;
+        boolean keepsCounts;
+
+        int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Constructor of a training run
+     * @param source - the features to train with
+     * @param rows - the rows of the training samples, in which a row may repeat, reordered by the run
+     * @param labels - label id of every row
+     * @param labelNames - label names, indexed by label id
+     * @param options - training settings
+     */
+    TreeBuilder(FeatureSource<T> source, int[] rows, int[] labels, String[] labelNames, TrainingOptions options) {
+        this.source = source;
+        this.pool = options.getPool();
+        this.listener = options.getListener();
+        this.allocations = listener != null && threadAllocatedBytes() >= 0 ? new LongAdder() : null;
+        this.checkpointFilename = options.getCheckpointFilename();
+        this.checkpointInterval = options.getCheckpointInterval();
+        this.resume = options.isResume();
+        this.labels = labels;
+        this.labelNames = labelNames;
+        this.samples = rows;
+        this.scratch = new int[rows.length];
+        int maxGroupSize = 1;
+        for (int g = 0; g < source.numOfGroups(); g++)
+            maxGroupSize = Math.max(maxGroupSize, source.firstFeatureOf(g + 1) - source.firstFeatureOf(g));
+        this.maxGroupSize = maxGroupSize;
+        this.xLogX = new double[Math.min(rows.length, MAX_TABLE_SIZE) + 1];
+        for (int x = 1; x < xLogX.length; x++)
+            xLogX[x] = x * Math.log(x);
+        // the leaves being scored may keep counts too: the smaller new leaf, and both new leaves
+        // when the split leaf did not keep its counts
+        long keptCountsBytes = source.keptCountsBytes(labelNames.length);
+        this.maxKeptLeaves = keptCountsBytes == 0 ? 0 :
+                (int) Math.max(0, Math.min(Integer.MAX_VALUE, KEPT_COUNTS_MEMORY / keptCountsBytes - 2));
+    }
+
+    /**
+     * Function to create a training run which tests the features directly on a data set's objects
+     * @param features - A collection of predicate objects which have a boolean testing method
+     * @param trainingDataSet - The training data set to learn
+     * @param options - training settings
+     * @return a new training run
+     */
+    static <T> TreeBuilder<T> of(Collection<Predicate<T>> features, DataSet<T> trainingDataSet,
+                                 TrainingOptions options) {
+        Tuple3<FeatureSource<T>, int[], int[]> source = sourceOf(features, trainingDataSet);
+        return new TreeBuilder<>(source.getT1(), source.getT2(), source.getT3(),
+                trainingDataSet.getLabelDictionary().getNames(), options);
+    }
+
+    /**
+     * Function to create the feature source of training runs which test the features on a data set's objects
+     * Threshold features are tested on columns of the tested values instead: the columns of a
+     * {@link ByteColumnDataSet}, or otherwise columns copied from the objects
+     * @param features - A collection of predicate objects which have a boolean testing method
+     * @param trainingDataSet - The training data set to learn
+     * @return tuple of the feature source, the rows of the data set's samples in ascending order
+     *         and the label id of every row
+     */
+    static <T> Tuple3<FeatureSource<T>, int[], int[]> sourceOf(Collection<Predicate<T>> features,
+                                                              DataSet<T> trainingDataSet) {
+        if (trainingDataSet instanceof ByteColumnDataSet) {
+            ByteColumnDataSet<?> columnDataSet = (ByteColumnDataSet<?>) trainingDataSet;
+            FeatureSource<T> columnSource = columnDataSet.asFeatureSource(new ArrayList<>(features));
+            if (columnSource != null)
+                return new Tuple3<>(columnSource, columnDataSet.getIndices(), columnDataSet.getColumnLabelIds());
+        }
+        int[] labels = trainingDataSet.getLabelIds();
+        List<T> objects = new ArrayList<>(labels.length);
+        for (DataSetEntry<T> entry : trainingDataSet)
+            objects.add(entry.getObject());
+        int[] rows = new int[labels.length];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = i;
+        FeatureSource<T> source = ThresholdFeatureSource.of(new ArrayList<>(features), objects);
+        if (source == null)
+            source = new PredicateFeatureSource<>(features, objects);
+        return new Tuple3<>(source, rows, labels);
+    }
+
+    /**
+     * Function to create a training run over precomputed features
+     * @param matrix - the precomputed features
+     * @param trainingDataSet - The training data set to learn, the data set of the matrix or a subset of it
+     * @param options - training settings
+     * @return a new training run
+     */
+    static <T> TreeBuilder<T> of(FeatureMatrix<T> matrix, DataSet<T> trainingDataSet, TrainingOptions options) {
+        return new TreeBuilder<>(matrix, matrix.rowsOf(trainingDataSet), matrix.getLabels(), matrix.getLabelNames(),
+                options);
+    }
+
+    /**
+     * Function to estimate the memory a training run allocates, besides its feature source
+     * @param numOfSamples - number of training samples
+     * @param numOfLabels - number of different labels
+     * @param numOfIterations - number of splits the run makes
+     * @param boundBytesPerSample - bytes per sample the source bound to the run allocates,
+     *                            see {@link FeatureSource#forRows}
+     * @return estimated number of bytes
+     */
+    static long estimateMemory(long numOfSamples, int numOfLabels, int numOfIterations, long boundBytesPerSample) {
+        // sample and scratch indices, the bound source, the label masks of the 2 leaves created by a split,
+        // for every split its nodes, leaves and their label counts, the label count maps of its 2 new nodes
+        // (a map, its table and an entry and a boxed count per label), and the group counts leaves keep
+        return (8 + boundBytesPerSample) * numOfSamples
+                + 2L * numOfLabels * (numOfSamples / 8 + 8)
+                + (long) numOfIterations * (256 + 24L * numOfLabels)
+                + (long) numOfIterations * 2 * (64 + 64L * numOfLabels)
+                + KEPT_COUNTS_MEMORY;
+    }
+
+    /**
+     * Method to prepare a single step of the split search, the search of the best split of the root leaf,
+     * for benchmarks measuring the step apart from preparing it
+     * The run is not used for anything else
+     * @return search which returns the information gain of the best split of the root
+     */
+    DoubleSupplier rootSplitSearch() {
+        Leaf<T> rootLeaf = newLeaf(null, 0, samples.length, new int[0], countLabels(0, samples.length));
+        source = source.forRows(samples, labels);
+        return () -> {
+            maxInformationGain(rootLeaf);
+            return rootLeaf.gain;
+        };
+    }
+
+    /**
+     * Method to run the 'ID3' algorithm
+     * @param extractTreeIterations - Array of iteration numbers in which snapshots
+     *                              of the currently built tree will be returned
+     * @return List of decision tree snapshots, views of the fully built tree
+     * @throws UncheckedIOException if the checkpoint can not be read or written
+     */
+    List<DecisionTree<T>> build(int[] extractTreeIterations) {
+        Arrays.sort(extractTreeIterations);
+        int numOfIterations = extractTreeIterations[extractTreeIterations.length-1];
+        long fingerprint = checkpointFilename == null ? 0 : fingerprint();
+        DecisionTree<T> learnTree = new DecisionTree<>();
+        List<Leaf<T>> newLeaves = new ArrayList<>();
+        PriorityQueue<Leaf<T>> frontier = new PriorityQueue<>(FRONTIER_ORDER);
+        FeatureSource.LeafCounter splitCounter = null;
+        int i = resume && checkpointFilename != null ? restore(learnTree, frontier, newLeaves, fingerprint) : 0;
+        if (i == 0) {
+            Leaf<T> rootLeaf = newLeaf(null, 0, samples.length, new int[0], countLabels(0, samples.length));
+            learnTree.root = rootLeaf.node;
+            newLeaves.add(rootLeaf);
+            i = 1;
+        }
+        source = source.forRows(samples, labels);
+        try (TreeCheckpoint checkpoint = checkpointFilename == null ? null :
+                new TreeCheckpoint(checkpointFilename, checkpointInterval)) {
+            for (; i <= numOfIterations; i++) {
+                if (checkpoint != null && checkpoint.isDue())
+                    checkpoint.write(encodeState(learnTree, frontier, newLeaves, i, fingerprint), samples.clone());
+                long start = listener == null ? 0 : System.nanoTime();
+                long allocatedAtStart = allocations == null ? 0 : threadAllocatedBytes();
+                if (allocations != null)
+                    allocations.reset();
+                scoreNewLeaves(newLeaves, splitCounter);
+                long searched = listener == null ? 0 : System.nanoTime();
+                long candidatesScored = 0;
+                for (Leaf<T> leaf : newLeaves) {
+                    candidatesScored += leaf.candidatesScored;
+                    if (leaf.bestFeature >= 0 && leaf.gain > 0.0) {
+                        frontier.add(leaf);
+                        keepCounts(leaf);
+                    }
+                    else
+                        releaseCounts(leaf);
+                }
+                newLeaves.clear();
+                Leaf<T> maxLeaf = frontier.poll();
+                long selected = listener == null ? 0 : System.nanoTime();
+                if (maxLeaf == null)
+                    break;
+                splitCounter = maxLeaf.counter;
+                maxLeaf.counter = null;
+                maxLeaf.keepsCounts = false;
+                keptLeaves.remove(maxLeaf);
+                DecisionTree.FeatureNode<T> replacement = split(maxLeaf, newLeaves);
+                if (listener != null) {
+                    long partitioned = System.nanoTime();
+                    long allocated = allocations == null ? -1 :
+                            allocations.sum() + threadAllocatedBytes() - allocatedAtStart;
+                    listener.onIteration(new IterationMetrics(i, maxLeaf.gain, maxLeaf.size(),
+                            newLeaves.get(1).size(), newLeaves.get(0).size(), frontier.size(), candidatesScored,
+                            searched - start, selected - searched, partitioned - selected, allocated));
+                }
+                replacement.order = i;
+                setSplitFeature(i, maxLeaf.bestFeature);
+                replace(learnTree, maxLeaf.node, replacement);
+            }
+            // the finished run is checkpointed too, so resuming it does not repeat any iteration
+            if (checkpoint != null)
+                checkpoint.write(encodeState(learnTree, frontier, newLeaves, i, fingerprint), samples.clone());
+        }
+        List<DecisionTree<T>> returnedTrees = new ArrayList<>();
+        for (int iteration : extractTreeIterations)
+            returnedTrees.add(learnTree.snapshot(iteration));
+        return returnedTrees;
+    }
+
+    /**
+     * Method to update a tree with the samples of this run, which are a batch of new samples
+     * (see {@link DecisionTree#update(Collection, DataSet, UpdateOptions)})
+     * The samples are grouped by the leaf they reach, so every leaf owns a range of them as in training,
+     * and the leaves are split best gain first. A leaf is split only if the Hoeffding bound of its number of
+     * samples is below the margin of its best split over the best split of any other feature group,
+     * or below the tie threshold
+     * @param tree - the tree to update, which is not a view and has statistics
+     * @param batch - the samples' data set, whose entries are in the order of the samples
+     * @param options - update settings
+     * @return the number of splits grown
+     */
+    int update(DecisionTree<T> tree, DataSet<T> batch, UpdateOptions options) {
+        trackRunnerUp = true;
+        int maxOrder = maxOrderOf(tree);
+        // route every sample to its leaf, counting it in every node on its path
+        Map<DecisionTree.DecisionTreeNode<T>, Boolean> visited = new IdentityHashMap<>();
+        Map<DecisionTree.LabelNode<T>, Integer> leafIds = new IdentityHashMap<>();
+        List<DecisionTree.LabelNode<T>> reached = new ArrayList<>();
+        int[] leafOf = new int[samples.length];
+        int i = 0;
+        for (DataSetEntry<T> entry : batch) {
+            DecisionTree.DecisionTreeNode<T> node = tree.root;
+            while (true) {
+                node.getLabelCounts().merge(entry.getLabel(), 1, Integer::sum);
+                visited.put(node, Boolean.TRUE);
+                if (node.isLeaf())
+                    break;
+                DecisionTree.FeatureNode<T> featureNode = (DecisionTree.FeatureNode<T>) node;
+                node = featureNode.feature.test(entry.getObject()) ? featureNode.right : featureNode.left;
+            }
+            DecisionTree.LabelNode<T> leaf = (DecisionTree.LabelNode<T>) node;
+            Integer leafId = leafIds.get(leaf);
+            if (leafId == null) {
+                leafId = reached.size();
+                leafIds.put(leaf, leafId);
+                reached.add(leaf);
+            }
+            leafOf[i++] = leafId;
+        }
+        for (DecisionTree.DecisionTreeNode<T> node : visited.keySet()) {
+            String label = majorityLabel(node.getLabelCounts());
+            if (node.isLeaf())
+                ((DecisionTree.LabelNode<T>) node).label = label;
+            else
+                ((DecisionTree.FeatureNode<T>) node).label = label;
+        }
+
+        // order the samples by their leaf, keeping their order within every leaf
+        int[] starts = new int[reached.size() + 1];
+        for (int leafId : leafOf)
+            starts[leafId + 1]++;
+        for (int l = 0; l < reached.size(); l++)
+            starts[l + 1] += starts[l];
+        int[] positions = Arrays.copyOf(starts, reached.size());
+        for (int s = 0; s < samples.length; s++)
+            scratch[positions[leafOf[s]]++] = samples[s];
+        System.arraycopy(scratch, 0, samples, 0, samples.length);
+        source = source.forRows(samples, labels);
+        List<Leaf<T>> newLeaves = new ArrayList<>();
+        for (int l = 0; l < reached.size(); l++) {
+            if (starts[l + 1] - starts[l] < options.getMinSamples())
+                continue;
+            Leaf<T> leaf = new Leaf<>();
+            leaf.id = numOfLeaves++;
+            leaf.node = reached.get(l);
+            leaf.from = starts[l];
+            leaf.to = starts[l + 1];
+            leaf.usedFeatures = new int[0];
+            leaf.labelCounts = countLabels(leaf.from, leaf.to);
+            newLeaves.add(leaf);
+        }
+
+        PriorityQueue<Leaf<T>> frontier = new PriorityQueue<>(FRONTIER_ORDER);
+        int grown = 0;
+        while (grown < options.getMaxSplits()) {
+            scoreLeaves(newLeaves);
+            for (Leaf<T> leaf : newLeaves)
+                if (leaf.bestFeature >= 0 && leaf.gain > 0.0 && isSplitJustified(leaf, options))
+                    frontier.add(leaf);
+            newLeaves.clear();
+            Leaf<T> maxLeaf = frontier.poll();
+            if (maxLeaf == null)
+                break;
+            DecisionTree.FeatureNode<T> replacement = split(maxLeaf, newLeaves);
+            replacement.order = ++maxOrder;
+            replace(tree, maxLeaf.node, replacement);
+            grown++;
+            newLeaves.removeIf(leaf -> leaf.size() < options.getMinSamples());
+        }
+        return grown;
+    }
+
+    /**
+     * Method to check whether the best split of a leaf is justified by the Hoeffding bound:
+     * with the probability of the settings, its margin over the runner-up split is the margin
+     * over all the samples the leaf would see
+     * @param leaf - a scored leaf
+     * @param options - update settings
+     * @return true if the leaf may be split
+     */
+    private boolean isSplitJustified(Leaf<T> leaf, UpdateOptions options) {
+        int size = leaf.size();
+        // the range of the information gain, in nats
+        double range = Math.log(Math.max(2, labelNames.length));
+        double bound = range * Math.sqrt(Math.log(1 / options.getSplitErrorProbability()) / (2.0 * size));
+        return (leaf.gain - leaf.runnerUpGain) / size > bound || bound < options.getTieThreshold();
+    }
+
+    /**
+     * Function to return the maximal growth order of the feature nodes of a tree
+     * @param tree - the tree
+     * @return the maximal growth order, or 0 if the tree is a leaf
+     */
+    private static <T> int maxOrderOf(DecisionTree<T> tree) {
+        int maxOrder = 0;
+        Deque<DecisionTree.DecisionTreeNode<T>> stack = new ArrayDeque<>();
+        stack.push(tree.root);
+        while (!stack.isEmpty()) {
+            DecisionTree.DecisionTreeNode<T> node = stack.pop();
+            if (!node.isLeaf()) {
+                DecisionTree.FeatureNode<T> featureNode = (DecisionTree.FeatureNode<T>) node;
+                maxOrder = Math.max(maxOrder, featureNode.order);
+                stack.push(featureNode.left);
+                stack.push(featureNode.right);
+            }
+        }
+        return maxOrder;
+    }
+
+    /**
+     * Function to return the label with the most occurrences, ties go to the first label in the natural order,
+     * which is the label of the lowest id as in training (see {@link LabelDictionary}), so a node whose counts
+     * did not change keeps its label
+     * @param labelCounts - map from every label which occurs to its count
+     * @return the label with the most occurrences, or null if no label occurs
+     */
+    private static String majorityLabel(Map<String, Integer> labelCounts) {
+        String majority = null;
+        int max = 0;
+        for (Map.Entry<String, Integer> count : labelCounts.entrySet())
+            if (count.getValue() > max || (count.getValue() == max && count.getValue() > 0 &&
+                    count.getKey().compareTo(majority) < 0)) {
+                majority = count.getKey();
+                max = count.getValue();
+            }
+        return majority;
+    }
+
+    /**
+     * Method to put a feature node in the place of a leaf of a tree
+     * @param tree - the tree
+     * @param leaf - the leaf to replace
+     * @param replacement - the feature node which replaces it
+     */
+    private static <T> void replace(DecisionTree<T> tree, DecisionTree.LabelNode<T> leaf,
+                                    DecisionTree.FeatureNode<T> replacement) {
+        DecisionTree.DecisionTreeNode<T> parent = leaf.parent;
+        replacement.parent = parent;
+        if (parent != null) {
+            DecisionTree.FeatureNode<T> featureParent = (DecisionTree.FeatureNode<T>) parent;
+            if (leaf == featureParent.left)
+                featureParent.left = replacement;
+            else
+                featureParent.right = replacement;
+        }
+        else //First swap
+            tree.root = replacement;
+    }
+
+    /**
+     * Method to encode the state of the run between two iterations, except its sample indices
+     * The nodes of the tree are encoded in pre-order, right child first, and every unsplit leaf of the run
+     * is encoded with its node, together with its split if it was already scored
+     * @param tree - the tree being built
+     * @param frontier - the scored leaves waiting to be split
+     * @param newLeaves - the leaves created by the last split, not scored yet
+     * @param iteration - the next iteration of the run
+     * @param fingerprint - fingerprint of the run's input, see {@link #fingerprint()}
+     * @return the encoded state
+     */
+    private byte[] encodeState(DecisionTree<T> tree, Collection<Leaf<T>> frontier, List<Leaf<T>> newLeaves,
+                               int iteration, long fingerprint) {
+        Map<DecisionTree.DecisionTreeNode<T>, Leaf<T>> openLeaves = new IdentityHashMap<>();
+        for (Leaf<T> leaf : frontier)
+            openLeaves.put(leaf.node, leaf);
+        for (Leaf<T> leaf : newLeaves)
+            openLeaves.put(leaf.node, leaf);
+        Map<String, Integer> labelIds = labelIds();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * (iteration + openLeaves.size()));
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(TreeCheckpoint.MAGIC);
+            out.writeInt(TreeCheckpoint.VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(iteration);
+            out.writeInt(numOfLeaves);
+            Deque<DecisionTree.DecisionTreeNode<T>> stack = new ArrayDeque<>();
+            stack.push(tree.root);
+            while (!stack.isEmpty()) {
+                DecisionTree.DecisionTreeNode<T> node = stack.pop();
+                Leaf<T> leaf = openLeaves.get(node);
+                if (leaf != null) {
+                    out.writeByte(OPEN_LEAF);
+                    out.writeInt(leaf.id);
+                    out.writeInt(leaf.from);
+                    out.writeInt(leaf.to);
+                    writeInts(out, leaf.usedFeatures);
+                    writeInts(out, leaf.labelCounts);
+                    out.writeInt(leaf.bestFeature);
+                    if (leaf.bestFeature >= 0) {
+                        writeInts(out, leaf.bestTrueCounts);
+                        out.writeDouble(leaf.gain);
+                    }
+                }
+                else if (node.isLeaf()) {
+                    out.writeByte(LABEL_NODE);
+                    out.writeInt(labelIds.getOrDefault(node.getLabel(), -1));
+                    writeInts(out, labelCountsArray(node.getLabelCounts(), labelIds));
+                }
+                else {
+                    DecisionTree.FeatureNode<T> featureNode = (DecisionTree.FeatureNode<T>) node;
+                    out.writeByte(FEATURE_NODE);
+                    out.writeInt(featureNode.order);
+                    out.writeInt(splitFeatures[featureNode.order]);
+                    out.writeInt(labelIds.getOrDefault(featureNode.label, -1));
+                    writeInts(out, labelCountsArray(featureNode.labelCounts, labelIds));
+                    stack.push(featureNode.left);
+                    stack.push(featureNode.right);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write checkpoint " + checkpointFilename, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Method to restore the state of the run from its checkpoint file, if there is one
+     * @param tree - the tree being built, whose root is set
+     * @param frontier - queue to which the scored leaves of the checkpoint are added
+     * @param newLeaves - list to which the leaves of the checkpoint which were not scored yet are added
+     * @param fingerprint - fingerprint of the run's input, see {@link #fingerprint()}
+     * @return the next iteration of the run, or 0 if there is no checkpoint
+     * @throws UncheckedIOException if the checkpoint can not be read or is of another run
+     */
+    private int restore(DecisionTree<T> tree, PriorityQueue<Leaf<T>> frontier, List<Leaf<T>> newLeaves,
+                        long fingerprint) {
+        try (DataInputStream in = TreeCheckpoint.open(checkpointFilename)) {
+            if (in == null)
+                return 0;
+            if (in.readInt() != TreeCheckpoint.MAGIC || in.readInt() != TreeCheckpoint.VERSION)
+                throw new IOException("it is not a checkpoint file");
+            if (in.readLong() != fingerprint)
+                throw new IOException("it is of another training run");
+            int iteration = in.readInt();
+            numOfLeaves = in.readInt();
+            if (iteration < 1)
+                throw new IOException("it is corrupted");
+            // the parents whose right child was read are pushed back until their left child is read
+            Deque<DecisionTree.FeatureNode<T>> parents = new ArrayDeque<>();
+            do {
+                DecisionTree.DecisionTreeNode<T> node = readNode(in, frontier, newLeaves);
+                DecisionTree.FeatureNode<T> parent = parents.poll();
+                if (parent == null)
+                    tree.root = node;
+                else if (parent.right == null) {
+                    parent.right = node;
+                    parents.push(parent);
+                }
+                else
+                    parent.left = node;
+                if (node.isLeaf())
+                    ((DecisionTree.LabelNode<T>) node).parent = parent;
+                else {
+                    ((DecisionTree.FeatureNode<T>) node).parent = parent;
+                    parents.push((DecisionTree.FeatureNode<T>) node);
+                }
+            } while (!parents.isEmpty());
+            if (in.readInt() != samples.length)
+                throw new IOException("it is of another training run");
+            for (int i = 0; i < samples.length; i++)
+                samples[i] = in.readInt();
+            return iteration;
+        } catch (EOFException e) {
+            throw new UncheckedIOException("Could not resume from checkpoint " + checkpointFilename,
+                    new IOException("it is truncated", e));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not resume from checkpoint " + checkpointFilename, e);
+        }
+    }
+
+    /**
+     * Method to read a node of a checkpoint, whose children are read after it
+     * @param in - the checkpoint
+     * @param frontier - queue to which the node's leaf is added, if it is a scored leaf of the run
+     * @param newLeaves - list to which the node's leaf is added, if it is a leaf of the run which was not scored yet
+     * @return the node
+     * @throws IOException
+     */
+    private DecisionTree.DecisionTreeNode<T> readNode(DataInput in, PriorityQueue<Leaf<T>> frontier,
+                                                     List<Leaf<T>> newLeaves) throws IOException {
+        byte kind = in.readByte();
+        if (kind == OPEN_LEAF) {
+            Leaf<T> leaf = new Leaf<>();
+            leaf.id = in.readInt();
+            leaf.from = in.readInt();
+            leaf.to = in.readInt();
+            leaf.usedFeatures = readInts(in);
+            leaf.labelCounts = readInts(in);
+            leaf.bestFeature = in.readInt();
+            if (leaf.from < 0 || leaf.from > leaf.to || leaf.to > samples.length ||
+                    leaf.labelCounts.length != labelNames.length || leaf.bestFeature >= source.numOfFeatures())
+                throw new IOException("it is corrupted");
+            leaf.node = new DecisionTree.LabelNode<>();
+            leaf.node.label = maxOccurrencesLabel(leaf.labelCounts);
+            leaf.node.labelCounts = labelCountsOf(leaf.labelCounts);
+            if (leaf.bestFeature >= 0) {
+                leaf.bestTrueCounts = readInts(in);
+                leaf.gain = in.readDouble();
+                frontier.add(leaf);
+            }
+            else
+                newLeaves.add(leaf);
+            return leaf.node;
+        }
+        if (kind == LABEL_NODE) {
+            DecisionTree.LabelNode<T> node = new DecisionTree.LabelNode<>();
+            node.label = labelOf(in.readInt());
+            node.labelCounts = readLabelCounts(in);
+            return node;
+        }
+        if (kind != FEATURE_NODE)
+            throw new IOException("it is corrupted");
+        DecisionTree.FeatureNode<T> node = new DecisionTree.FeatureNode<>();
+        node.order = in.readInt();
+        int feature = in.readInt();
+        if (node.order < 1 || feature < 0 || feature >= source.numOfFeatures())
+            throw new IOException("it is corrupted");
+        node.feature = source.getFeature(feature);
+        node.label = labelOf(in.readInt());
+        node.labelCounts = readLabelCounts(in);
+        setSplitFeature(node.order, feature);
+        return node;
+    }
+
+    /**
+     * Function to fingerprint the input of the run, so a checkpoint is resumed only by a run of the same input
+     * It must be called before the first split, while the sample indices are in their given order
+     * @return hash of the sample indices, their labels, the label names and the number of features
+     */
+    private long fingerprint() {
+        long hash = ((long) samples.length << 32) ^ source.numOfFeatures();
+        for (String labelName : labelNames)
+            hash = hash * 31 + Objects.hashCode(labelName);
+        for (int sample : samples)
+            hash = (hash * 31 + sample) * 31 + labels[sample];
+        return hash;
+    }
+
+    private void setSplitFeature(int order, int feature) {
+        if (order >= splitFeatures.length)
+            splitFeatures = Arrays.copyOf(splitFeatures, Math.max(order + 1, 2 * splitFeatures.length));
+        splitFeatures[order] = feature;
+    }
+
+    private Map<String, Integer> labelIds() {
+        Map<String, Integer> labelIds = new HashMap<>();
+        for (int l = 0; l < labelNames.length; l++)
+            labelIds.put(labelNames[l], l);
+        return labelIds;
+    }
+
+    private int[] labelCountsArray(Map<String, Integer> labelCounts, Map<String, Integer> labelIds) {
+        int[] counts = new int[labelNames.length];
+        labelCounts.forEach((label, count) -> counts[labelIds.get(label)] = count);
+        return counts;
+    }
+
+    private Map<String, Integer> readLabelCounts(DataInput in) throws IOException {
+        int[] counts = readInts(in);
+        if (counts.length != labelNames.length)
+            throw new IOException("it is corrupted");
+        return labelCountsOf(counts);
+    }
+
+    private String labelOf(int labelId) throws IOException {
+        if (labelId < -1 || labelId >= labelNames.length)
+            throw new IOException("it is corrupted");
+        return labelId < 0 ? null : labelNames[labelId];
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values)
+            out.writeInt(value);
+    }
+
+    private static int[] readInts(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 1 << 24)
+            throw new IOException("it is corrupted");
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++)
+            values[i] = in.readInt();
+        return values;
+    }
+
+    /**
+     * Method to find the best split of every given leaf, concurrently when a pool is configured
+     * @param leaves - the leaves to evaluate
+     */
+    private void scoreLeaves(List<Leaf<T>> leaves) {
+        if (pool == null || leaves.size() < 2)
+            leaves.forEach(this::maxInformationGain);
+        else
+            join(pool.submit(() ->
+                    leaves.parallelStream().forEach(leaf -> measured(() -> maxInformationGain(leaf)))));
+    }
+
+    /**
+     * Method to find the best split of the leaves created by the last split, or of the root
+     * New leaves keep their group counts, if the source keeps counts. When the split leaf kept its counts,
+     * the smaller new leaf is counted first and the larger one derives its counts from both,
+     * so only the smaller leaf's samples are read
+     * @param leaves - the new leaves
+     * @param splitCounter - counter of the split leaf if it kept its counts, or null
+     */
+    private void scoreNewLeaves(List<Leaf<T>> leaves, FeatureSource.LeafCounter splitCounter) {
+        if (splitCounter != null && leaves.size() == 2) {
+            Leaf<T> smaller = leaves.get(0).size() < leaves.get(1).size() ? leaves.get(0) : leaves.get(1);
+            Leaf<T> larger = smaller == leaves.get(0) ? leaves.get(1) : leaves.get(0);
+            smaller.counter = source.newLeafCounter(samples, smaller.from, smaller.to, labels, labelNames.length);
+            smaller.keepsCounts = smaller.counter.keepGroupCounts();
+            if (smaller.keepsCounts) {
+                maxInformationGain(smaller);
+                larger.counter = source.newLeafCounter(samples, larger.from, larger.to, labels,
+                        labelNames.length, splitCounter, smaller.counter);
+                larger.keepsCounts = larger.counter.keepGroupCounts();
+                maxInformationGain(larger);
+                splitCounter.release();
+                return;
+            }
+        }
+        if (splitCounter != null)
+            splitCounter.release();
+        for (Leaf<T> leaf : leaves) {
+            if (leaf.counter != null)
+                continue;
+            leaf.counter = source.newLeafCounter(samples, leaf.from, leaf.to, labels, labelNames.length);
+            leaf.keepsCounts = maxKeptLeaves > 0 && leaf.counter.keepGroupCounts();
+        }
+        scoreLeaves(leaves);
+    }
+
+    /**
+     * Method to hold the counter of a frontier leaf if it keeps its group counts, releasing the counts
+     * of the leaf with the lowest gain when more than {@link #maxKeptLeaves} leaves keep them,
+     * since the leaves with the highest gain are split first
+     * @param leaf - the leaf
+     */
+    private void keepCounts(Leaf<T> leaf) {
+        if (!leaf.keepsCounts) {
+            leaf.counter = null;
+            return;
+        }
+        keptLeaves.add(leaf);
+        if (keptLeaves.size() > maxKeptLeaves) {
+            Leaf<T> lowest = Collections.max(keptLeaves, FRONTIER_ORDER);
+            keptLeaves.remove(lowest);
+            releaseCounts(lowest);
+        }
+    }
+
+    private void releaseCounts(Leaf<T> leaf) {
+        if (leaf.counter != null)
+            leaf.counter.release();
+        leaf.counter = null;
+        leaf.keepsCounts = false;
+    }
+
+    /**
+     * Method that calculates the maximal information gain (over all unused features) for a given leaf
+     * and stores the best feature, its label counts and the gain in the leaf
+     * Large leaves are evaluated by several tasks, each over its own range of feature groups
+     * @param leaf - the leaf to evaluate
+     */
+    private void maxInformationGain(Leaf<T> leaf) {
+        int size = leaf.size(); //N(L)
+        int numOfGroups = source.numOfGroups();
+        FeatureSource.LeafCounter counter = leaf.counter != null ? leaf.counter :
+                source.newLeafCounter(samples, leaf.from, leaf.to, labels, labelNames.length);
+        Candidate best;
+        if (pool == null || (long)size * numOfGroups < PARALLEL_THRESHOLD) {
+            best = bestSplit(leaf, counter, 0, numOfGroups);
+            leaf.candidatesScored = best.scored;
+        }
+        else {
+            int groupsPerTask = Math.max(1, (int)((long)FEATURES_PER_TASK * numOfGroups / source.numOfFeatures()));
+            int numOfTasks = (numOfGroups + groupsPerTask - 1) / groupsPerTask;
+            List<Candidate> candidates = join(pool.submit(() -> IntStream.range(0, numOfTasks).parallel()
+                    .mapToObj(task -> measured(() -> bestSplit(leaf, counter, task * groupsPerTask,
+                            Math.min(numOfGroups, (task + 1) * groupsPerTask))))
+                    .collect(Collectors.toList())));
+            best = candidates.stream().reduce(new Candidate(), Candidate::better);
+            leaf.candidatesScored = candidates.stream().mapToLong(candidate -> candidate.scored).sum();
+        }
+        double entropy = calcEntropy(leaf.labelCounts, size);
+        leaf.bestFeature = best.feature;
+        leaf.bestTrueCounts = best.trueCounts;
+        leaf.gain = best.feature < 0 ? 0.0 : size * (entropy - best.weightedEntropy);
+        leaf.runnerUpGain = best.runnerUpWeightedEntropy == Double.MAX_VALUE ? 0.0 :
+                size * (entropy - best.runnerUpWeightedEntropy);
+    }
+
+    /**
+     * Method to find the feature with the minimal weighted entropy among a range of feature groups
+     * Only the first feature of every run of a group's features which split the leaf alike is evaluated,
+     * since it wins the tie
+     * The best split of every other group is a runner-up, whose minimal weighted entropy is exact
+     * only when the runner-up is tracked, since otherwise splits are rejected by the best split alone
+     * @param leaf - the leaf to evaluate
+     * @param counter - label counter of the leaf's samples
+     * @param fromGroup - first group to evaluate (inclusive)
+     * @param toGroup - last group to evaluate (exclusive)
+     * @return the best split over the range, the first one of equally good splits
+     */
+    private Candidate bestSplit(Leaf<T> leaf, FeatureSource.LeafCounter counter, int fromGroup, int toGroup) {
+        int size = leaf.size();
+        int numOfLabels = labelNames.length;
+        int[] trueCounts = new int[maxGroupSize * numOfLabels];
+        int[] trueSizes = new int[maxGroupSize];
+        int[] runStarts = new int[maxGroupSize];
+        Candidate best = new Candidate();
+        for (int g = fromGroup; g < toGroup; g++) {
+            int first = source.firstFeatureOf(g);
+            int groupSize = source.firstFeatureOf(g + 1) - first;
+            double bestBeforeGroup = best.weightedEntropy;
+            double groupEntropy = Double.MAX_VALUE;
+            int numOfRuns = 1;
+            if (groupSize == 1) {
+                if (isUsed(leaf, first))
+                    continue;
+                trueSizes[0] = counter.countTrue(first, trueCounts);
+                runStarts[0] = 0;
+            }
+            else
+                numOfRuns = counter.countGroup(first, first + groupSize, numOfLabels,
+                        trueCounts, trueSizes, runStarts);
+            for (int k = 0; k < numOfRuns; k++) {
+                int trueSize = trueSizes[k];
+                int feature = first + runStarts[k];
+                // a used feature sends all the leaf's samples to one side, other features never do
+                if (groupSize > 1 && (trueSize == 0 || trueSize == size)) {
+                    int runEnd = first + (k + 1 < numOfRuns ? runStarts[k + 1] : groupSize);
+                    while (feature < runEnd && isUsed(leaf, feature))
+                        feature++;
+                    if (feature == runEnd)
+                        continue;
+                }
+                int offset = k * numOfLabels;
+                best.scored++;
+                // most splits are rejected by a table based score, without computing logarithms
+                if (score(leaf.labelCounts, trueCounts, offset, size, trueSize) / size >
+                        (trackRunnerUp ? best.runnerUpWeightedEntropy : best.weightedEntropy) + SCORE_MARGIN)
+                    continue;
+                double result = weightedEntropy(leaf.labelCounts, trueCounts, offset, size, trueSize);
+                groupEntropy = Math.min(groupEntropy, result);
+                if (result < best.weightedEntropy) {
+                    best.weightedEntropy = result;
+                    best.feature = feature;
+                    best.trueCounts = Arrays.copyOfRange(trueCounts, offset, offset + numOfLabels);
+                }
+            }
+            // if this group took the lead, the best split of the previous groups is the runner-up
+            best.runnerUpWeightedEntropy = Math.min(best.runnerUpWeightedEntropy,
+                    groupEntropy < bestBeforeGroup ? bestBeforeGroup : groupEntropy);
+        }
+        return best;
+    }
+
+    /**
+     * Method to replace a leaf by a feature node according to the leaf's best split
+     * The leaf's samples range is partitioned in place, samples which fail the
+     * feature come first (left child) and samples which pass it come last (right child)
+     * @param leaf - the leaf to split
+     * @param newLeaves - list to which the two new leaves are added
+     * @return the feature node replacing the leaf
+     */
+    private DecisionTree.FeatureNode<T> split(Leaf<T> leaf, List<Leaf<T>> newLeaves) {
+        int write = source.partition(samples, leaf.from, leaf.to, leaf.bestFeature, scratch);
+
+        int[] usedFeatures = Arrays.copyOf(leaf.usedFeatures, leaf.usedFeatures.length + 1);
+        usedFeatures[leaf.usedFeatures.length] = leaf.bestFeature;
+        int[] falseCounts = new int[labelNames.length];
+        for (int l = 0; l < falseCounts.length; l++)
+            falseCounts[l] = leaf.labelCounts[l] - leaf.bestTrueCounts[l];
+
+        DecisionTree.FeatureNode<T> featureNode = new DecisionTree.FeatureNode<>();
+        featureNode.feature = source.getFeature(leaf.bestFeature);
+        featureNode.label = leaf.node.label;
+        featureNode.labelCounts = leaf.node.labelCounts;
+        Leaf<T> right = newLeaf(featureNode, write, leaf.to, usedFeatures, leaf.bestTrueCounts);
+        Leaf<T> left = newLeaf(featureNode, leaf.from, write, usedFeatures, falseCounts);
+        featureNode.right = right.node;
+        featureNode.left = left.node;
+        newLeaves.add(right);
+        newLeaves.add(left);
+        return featureNode;
+    }
+
+    /**
+     * Method to calculate the weighted entropy of a split multiplied by the set size, from a table of x*log(x)
+     * It equals size * weightedEntropy up to rounding
+     * @param labelCounts - label counts of the whole set
+     * @param trueCounts - array holding the label counts of the samples which pass the feature
+     * @param offset - index of the first label count in trueCounts
+     * @param size - the size of the whole set
+     * @param trueSize - the number of samples which pass the feature
+     * @return score of the split
+     */
+    private double score(int[] labelCounts, int[] trueCounts, int offset, int size, int trueSize) {
+        double score = xLogX(trueSize) + xLogX(size - trueSize);
+        for (int l = 0; l < labelCounts.length; l++) {
+            int trueCount = trueCounts[offset + l];
+            score -= xLogX(trueCount) + xLogX(labelCounts[l] - trueCount);
+        }
+        return score;
+    }
+
+    /**
+     * Function to return the number of bytes allocated so far by the current thread
+     * @return number of bytes, or -1 if the JVM does not measure allocations
+     */
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+            return -1;
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Method to run a task of the run on a thread of the pool, adding the bytes it allocates on that thread
+     * to the allocations of the iteration
+     * @param task - the task, which does not run other tasks of the run
+     * @return the task's result
+     */
+    private <R> R measured(Supplier<R> task) {
+        if (allocations == null)
+            return task.get();
+        long start = threadAllocatedBytes();
+        try {
+            return task.get();
+        }
+        finally {
+            allocations.add(threadAllocatedBytes() - start);
+        }
+    }
+
+    private void measured(Runnable task) {
+        measured(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Method to wait for tasks of the run, which measure their own allocations
+     * What the current thread allocates while waiting is taken off the allocations of the iteration,
+     * since it runs either the run's tasks, which are counted already, or tasks of other runs in the pool
+     * @param task - the task
+     * @return the task's result
+     */
+    private <R> R join(ForkJoinTask<R> task) {
+        if (allocations == null)
+            return task.join();
+        long start = threadAllocatedBytes();
+        try {
+            return task.join();
+        }
+        finally {
+            allocations.add(start - threadAllocatedBytes());
+        }
+    }
+
+    private double xLogX(int x) {
+        return x < xLogX.length ? xLogX[x] : x * Math.log(x);
+    }
+
+    private Leaf<T> newLeaf(DecisionTree.FeatureNode<T> parent, int from, int to,
+                            int[] usedFeatures, int[] labelCounts) {
+        Leaf<T> leaf = new Leaf<>();
+        leaf.id = numOfLeaves++;
+        leaf.node = new DecisionTree.LabelNode<>();
+        leaf.node.parent = parent;
+        leaf.node.label = maxOccurrencesLabel(labelCounts);
+        leaf.node.labelCounts = labelCountsOf(labelCounts);
+        leaf.from = from;
+        leaf.to = to;
+        leaf.usedFeatures = usedFeatures;
+        leaf.labelCounts = labelCounts;
+        return leaf;
+    }
+
+    private int[] countLabels(int from, int to) {
+        int[] counts = new int[labelNames.length];
+        for (int i = from; i < to; i++)
+            counts[labels[samples[i]]]++;
+        return counts;
+    }
+
+    /**
+     * Method to return the label counts of a node of the tree
+     * @param labelCounts - count of every label id
+     * @return map from every label which occurs to its count
+     */
+    private Map<String, Integer> labelCountsOf(int[] labelCounts) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int l = 0; l < labelCounts.length; l++)
+            if (labelCounts[l] > 0)
+                counts.put(labelNames[l], labelCounts[l]);
+        return counts;
+    }
+
+    private String maxOccurrencesLabel(int[] labelCounts) {
+        int max = -1;
+        for (int l = 0; l < labelCounts.length; l++)
+            if (labelCounts[l] > 0 && (max < 0 || labelCounts[l] > labelCounts[max]))
+                max = l;
+        return max < 0 ? null : labelNames[max];
+    }
+
+    private static boolean isUsed(Leaf<?> leaf, int feature) {
+        for (int used : leaf.usedFeatures)
+            if (used == feature)
+                return true;
+        return false;
+    }
+
+    /**
+     * Function that calculates the entropy of a set from its label counts
+     * @param labelCounts - number of occurrences of every label
+     * @param size - the size of the set
+     * @return Entropy of the set (H(L))
+     */
+    static double calcEntropy(int[] labelCounts, int size) {
+        double entropy = 0.0;
+        for (int count : labelCounts)
+            if (count > 0)
+                entropy += (((double)count)/size) * Math.log(((double)size)/count);
+        return entropy;
+    }
+
+    /**
+     * Function that calculates the weighted entropy of the two sides of a split
+     * @param labelCounts - label counts of the whole set
+     * @param trueCounts - label counts of the samples which pass the feature
+     * @param size - the size of the whole set
+     * @param trueSize - the number of samples which pass the feature
+     * @return weighted entropy of the split
+     */
+    static double weightedEntropy(int[] labelCounts, int[] trueCounts, int size, int trueSize) {
+        return weightedEntropy(labelCounts, trueCounts, 0, size, trueSize);
+    }
+
+    /**
+     * Function that calculates the weighted entropy of the two sides of a split
+     * @param labelCounts - label counts of the whole set
+     * @param trueCounts - array holding the label counts of the samples which pass the feature
+     * @param offset - index of the first label count in trueCounts
+     * @param size - the size of the whole set
+     * @param trueSize - the number of samples which pass the feature
+     * @return weighted entropy of the split
+     */
+    static double weightedEntropy(int[] labelCounts, int[] trueCounts, int offset, int size, int trueSize) {
+        int falseSize = size - trueSize;
+        double trueEntropy = 0.0;
+        double falseEntropy = 0.0;
+        for (int l = 0; l < labelCounts.length; l++) {
+            int trueCount = trueCounts[offset + l];
+            int falseCount = labelCounts[l] - trueCount;
+            if (trueCount > 0)
+                trueEntropy += (((double)trueCount)/trueSize) * Math.log(((double)trueSize)/trueCount);
+            if (falseCount > 0)
+                falseEntropy += (((double)falseCount)/falseSize) * Math.log(((double)falseSize)/falseCount);
+        }
+        return (((double)trueSize)/size)*trueEntropy + (((double)falseSize)/size)*falseEntropy;
+    }
+}
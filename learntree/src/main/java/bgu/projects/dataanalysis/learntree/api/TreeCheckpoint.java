@@ -0,0 +1,133 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to write the checkpoints of a {@link TreeBuilder} run to a file
+ * The training thread only copies the state of the run to memory, the file is written by a background thread:
+ * first to a temporary file, which then replaces the checkpoint, so the file always holds a whole checkpoint
+ * A checkpoint is the state encoded by the builder followed by its array of sample indices
+ */
+class TreeCheckpoint implements Closeable {
+
+    static final int MAGIC = 0x4454434B; // "DTCK"
+    static final int VERSION = 2;
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final long intervalNanos;
+    private final ExecutorService writer;
+    private Future<?> pending;
+    private long lastWrite;
+
+    /**
+     * Constructor of a checkpoint file, the interval starts now
+     * @param filename - the file to write the checkpoints to
+     * @param intervalMillis - minimal time between two periodic checkpoints
+     */
+    TreeCheckpoint(String filename, long intervalMillis) {
+        this.file = Paths.get(filename);
+        this.temporaryFile = Paths.get(filename + ".tmp");
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastWrite = System.nanoTime();
+    }
+
+    /**
+     * Method to return whether a periodic checkpoint is due: the interval passed and the last checkpoint was written
+     * @return true if {@link #write(byte[], int[])} should be called
+     */
+    boolean isDue() {
+        return (pending == null || pending.isDone()) && System.nanoTime() - lastWrite >= intervalNanos;
+    }
+
+    /**
+     * Method to write a checkpoint in the background, after the previous one was written
+     * @param state - the encoded state of the run, owned by the checkpoint from now on
+     * @param samples - a copy of the run's sample indices, owned by the checkpoint from now on
+     * @throws UncheckedIOException if the previous checkpoint could not be written
+     */
+    void write(byte[] state, int[] samples) {
+        await();
+        lastWrite = System.nanoTime();
+        pending = writer.submit(() -> {
+            writeFile(state, samples);
+            return null;
+        });
+    }
+
+    /**
+     * Method to wait for the last checkpoint to be written and stop the background thread
+     * @throws UncheckedIOException if the last checkpoint could not be written
+     */
+    @Override
+    public void close() {
+        try {
+            await();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Function to open a checkpoint file for reading
+     * @param filename - the checkpoint file
+     * @return stream of the checkpoint, or null if there is no such file
+     * @throws IOException
+     */
+    static DataInputStream open(String filename) throws IOException {
+        try {
+            return new DataInputStream(new BufferedInputStream(new FileInputStream(filename), 1 << 16));
+        } catch (FileNotFoundException e) {
+            if (Files.exists(Paths.get(filename)))
+                throw e;
+            return null;
+        }
+    }
+
+    private void await() {
+        if (pending == null)
+            return;
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException("Could not write checkpoint " + file,
+                    new InterruptedIOException("interrupted"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new UncheckedIOException("Could not write checkpoint " + file, cause instanceof IOException ?
+                    (IOException) cause : new IOException(String.valueOf(cause), cause));
+        } finally {
+            pending = null;
+        }
+    }
+
+    private void writeFile(byte[] state, int[] samples) throws IOException {
+        try (FileOutputStream fileStream = new FileOutputStream(temporaryFile.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream, 1 << 16));
+            out.write(state);
+            out.writeInt(samples.length);
+            for (int sample : samples)
+                out.writeInt(sample);
+            out.flush();
+            // the checkpoint must survive a crash of the machine, not only of the process
+            fileStream.getFD().sync();
+        }
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class to generate the bytecode of a {@link GeneratedDecisionTree} subclass for a {@link CompiledDecisionTree}
+ * Every feature node becomes a compare-and-branch on a constant value offset and threshold, and every leaf
+ * a return of a constant label id, so prediction runs no loop and reads no node arrays.
+ * A method is kept below the size the JIT compiles ({@link #MAX_METHOD_SIZE}): the largest subtrees of
+ * a node whose code would be larger are moved into methods of their own, which the node calls.
+ * The class file is of version 49, which the JVM verifies without stack map frames, and every class
+ * is defined by its own class loader, so it is unloaded with its tree
+ */
+final class TreeClassGenerator {
+
+    /**
+     * HotSpot does not JIT compile methods of more than 8000 bytes of bytecode
+     */
+    private static final int MAX_METHOD_SIZE = 7000;
+    /**
+     * Trees needing more methods are left interpreted, so the constant pool never overflows
+     */
+    private static final int MAX_METHODS = 8000;
+
+    private static final String PACKAGE = TreeClassGenerator.class.getPackage().getName().replace('.', '/');
+    private static final String SUPER_CLASS = GeneratedDecisionTree.class.getName().replace('.', '/');
+    private static final String METHOD_DESCRIPTOR = "([BI)I";
+    private static final AtomicLong CLASS_COUNTER = new AtomicLong();
+
+    /**
+     * Sizes of the generated code: a feature node is
+     * aload_0, iload_1, sipush index, iadd, baload, sipush 255, iand, sipush threshold, if_icmpgt right,
+     * a leaf is sipush label, ireturn, and a call of a subtree's method is aload_0, iload_1, invokestatic, ireturn
+     */
+    private static final int FEATURE_NODE_SIZE = 17;
+    private static final int LEAF_SIZE = 4;
+    private static final int CALL_SIZE = 6;
+
+    private static final int CLASS_FILE_VERSION = 49;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ILOAD_1 = 0x1b;
+    private static final int ILOAD_2 = 0x1c;
+    private static final int SIPUSH = 0x11;
+    private static final int IADD = 0x60;
+    private static final int BALOAD = 0x33;
+    private static final int IAND = 0x7e;
+    private static final int IF_ICMPGT = 0xa3;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private TreeClassGenerator() {
+    }
+
+    /**
+     * Function to generate the class of a tree and create its object
+     * @param valueIndices - feature value index of every node in pre-order, or -1 for a leaf
+     * @param thresholds - threshold of every feature node
+     * @param rightChildren - index of the right (true) child of every feature node
+     * @param labels - label id of every node, or -1
+     * @param labelNames - labels of the tree, indexed by label id
+     * @return the generated tree, or null if the tree can not be generated,
+     *         in which case it should be predicted by its compiled form
+     */
+    static GeneratedDecisionTree generate(int[] valueIndices, int[] thresholds, int[] rightChildren, int[] labels,
+                                          String[] labelNames) {
+        if (labelNames.length > Short.MAX_VALUE)
+            return null;
+        for (int valueIndex : valueIndices)
+            if (valueIndex > Short.MAX_VALUE)
+                return null;
+        int size = valueIndices.length;
+        // code size of every node's subtree, and the nodes whose subtrees are methods of their own,
+        // the code size of such a node is the size of its method
+        int[] codeSizes = new int[size];
+        boolean[] outlined = new boolean[size];
+        outlined[0] = true;
+        int numOfMethods = 1;
+        // children follow their parents in pre-order, so going backwards visits children first
+        for (int i = size - 1; i >= 0; i--) {
+            if (valueIndices[i] < 0) {
+                codeSizes[i] = LEAF_SIZE;
+                continue;
+            }
+            int larger = codeSizes[i + 1] >= codeSizes[rightChildren[i]] ? i + 1 : rightChildren[i];
+            int smaller = larger == i + 1 ? rightChildren[i] : i + 1;
+            codeSizes[i] = FEATURE_NODE_SIZE + codeSizes[larger] + codeSizes[smaller];
+            for (int child : new int[] {larger, smaller}) {
+                if (codeSizes[i] > MAX_METHOD_SIZE) {
+                    outlined[child] = true;
+                    numOfMethods++;
+                    codeSizes[i] += CALL_SIZE - codeSizes[child];
+                }
+            }
+        }
+        if (numOfMethods > MAX_METHODS)
+            return null;
+        try {
+            String className = PACKAGE + "/GeneratedTree$" + CLASS_COUNTER.incrementAndGet();
+            byte[] classFile = new ClassWriter(className, valueIndices, thresholds, rightChildren, labels, outlined,
+                    codeSizes).write();
+            Class<?> generatedClass = new Loader(GeneratedDecisionTree.class.getClassLoader())
+                    .define(className.replace('/', '.'), classFile);
+            GeneratedDecisionTree tree = (GeneratedDecisionTree) generatedClass.newInstance();
+            tree.labelNames = labelNames.clone();
+            return tree;
+        } catch (IOException | ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static class Loader extends ClassLoader {
+
+        Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
+    /**
+     * Class to write the class file of a single tree
+     * Subtree methods are static methods of (values, offset), named by their root node,
+     * and the public predictLabelId method calls the method of the root
+     */
+    private static class ClassWriter {
+
+        private final String className;
+        private final int[] valueIndices;
+        private final int[] thresholds;
+        private final int[] rightChildren;
+        private final int[] labels;
+        private final boolean[] outlined;
+        private final int[] codeSizes;
+        private final ByteArrayOutputStream constantPool = new ByteArrayOutputStream();
+        private final DataOutputStream constants = new DataOutputStream(constantPool);
+        private final Map<String, Integer> constantIndices = new HashMap<>();
+        private int numOfConstants = 1;
+        /**
+         * Pending nodes of the subtree being written, see {@link #subtreeCode(int)}
+         */
+        private int[] stack = new int[64];
+
+        ClassWriter(String className, int[] valueIndices, int[] thresholds, int[] rightChildren, int[] labels,
+                    boolean[] outlined, int[] codeSizes) {
+            this.className = className;
+            this.valueIndices = valueIndices;
+            this.thresholds = thresholds;
+            this.rightChildren = rightChildren;
+            this.labels = labels;
+            this.outlined = outlined;
+            this.codeSizes = codeSizes;
+        }
+
+        byte[] write() throws IOException {
+            int thisClass = classConstant(className);
+            int superClass = classConstant(SUPER_CLASS);
+            int superConstructor = methodConstant(SUPER_CLASS, "<init>", "()V");
+            int rootMethod = methodConstant(className, methodName(0), METHOD_DESCRIPTOR);
+            ByteArrayOutputStream methodTable = new ByteArrayOutputStream();
+            DataOutputStream methods = new DataOutputStream(methodTable);
+            int numOfMethods = 2;
+            writeMethod(methods, ACC_PUBLIC, "<init>", "()V", 1, 1, new byte[] {
+                    (byte) ALOAD_0,
+                    (byte) INVOKESPECIAL, (byte) (superConstructor >>> 8), (byte) superConstructor,
+                    (byte) RETURN});
+            writeMethod(methods, ACC_PUBLIC, "predictLabelId", METHOD_DESCRIPTOR, 2, 3, new byte[] {
+                    (byte) ALOAD_1,
+                    (byte) ILOAD_2,
+                    (byte) INVOKESTATIC, (byte) (rootMethod >>> 8), (byte) rootMethod,
+                    (byte) IRETURN});
+            for (int node = 0; node < outlined.length; node++) {
+                if (outlined[node]) {
+                    writeMethod(methods, ACC_PRIVATE | ACC_STATIC, methodName(node), METHOD_DESCRIPTOR, 3, 2,
+                            subtreeCode(node));
+                    numOfMethods++;
+                }
+            }
+            ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(classFile);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_FILE_VERSION);
+            out.writeShort(numOfConstants);
+            constantPool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            // no interfaces and no fields
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(numOfMethods);
+            methodTable.writeTo(out);
+            // no class attributes
+            out.writeShort(0);
+            return classFile.toByteArray();
+        }
+
+        /**
+         * Method to write a method with a single Code attribute, without exception handlers
+         */
+        private void writeMethod(DataOutputStream out, int access, String name, String descriptor, int maxStack,
+                                 int maxLocals, byte[] code) throws IOException {
+            out.writeShort(access);
+            out.writeShort(utf8Constant(name));
+            out.writeShort(utf8Constant(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8Constant("Code"));
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+
+        /**
+         * Function to generate the code of a subtree method: its nodes in pre-order, where a feature node
+         * falls through to its left child and branches to its right child, and outlined subtrees are calls
+         * @param root - the subtree's root node
+         * @return the bytecode
+         */
+        private byte[] subtreeCode(int root) throws IOException {
+            byte[] code = new byte[codeSizes[root]];
+            int position = 0;
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int item = stack[--top];
+                if (item < 0) {
+                    // the left subtree of the node whose branch is at -item-1 is written, the right subtree is next
+                    int branch = -item - 1;
+                    int offset = position - branch;
+                    code[branch + 1] = (byte) (offset >>> 8);
+                    code[branch + 2] = (byte) offset;
+                    continue;
+                }
+                int node = item;
+                if (outlined[node] && node != root) {
+                    int method = methodConstant(className, methodName(node), METHOD_DESCRIPTOR);
+                    code[position++] = (byte) ALOAD_0;
+                    code[position++] = (byte) ILOAD_1;
+                    code[position++] = (byte) INVOKESTATIC;
+                    code[position++] = (byte) (method >>> 8);
+                    code[position++] = (byte) method;
+                    code[position++] = (byte) IRETURN;
+                }
+                else if (valueIndices[node] < 0) {
+                    position = writeShortOperand(code, position, SIPUSH, labels[node]);
+                    code[position++] = (byte) IRETURN;
+                }
+                else {
+                    // values are between 0 and 255, so a threshold outside [-1, 255] acts like one of these
+                    int threshold = Math.max(-1, Math.min(255, thresholds[node]));
+                    code[position++] = (byte) ALOAD_0;
+                    code[position++] = (byte) ILOAD_1;
+                    position = writeShortOperand(code, position, SIPUSH, valueIndices[node]);
+                    code[position++] = (byte) IADD;
+                    code[position++] = (byte) BALOAD;
+                    position = writeShortOperand(code, position, SIPUSH, 0xff);
+                    code[position++] = (byte) IAND;
+                    position = writeShortOperand(code, position, SIPUSH, threshold);
+                    int branch = position;
+                    position = writeShortOperand(code, position, IF_ICMPGT, 0);
+                    if (top + 3 > stack.length)
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    stack[top++] = rightChildren[node];
+                    stack[top++] = -branch - 1;
+                    stack[top++] = node + 1;
+                }
+            }
+            return code;
+        }
+
+        private static int writeShortOperand(byte[] code, int position, int opcode, int operand) {
+            code[position++] = (byte) opcode;
+            code[position++] = (byte) (operand >>> 8);
+            code[position++] = (byte) operand;
+            return position;
+        }
+
+        private static String methodName(int node) {
+            return "node" + node;
+        }
+
+        private int utf8Constant(String value) throws IOException {
+            Integer index = constantIndices.get("U" + value);
+            if (index == null) {
+                constants.writeByte(CONSTANT_UTF8);
+                constants.writeUTF(value);
+                index = numOfConstants++;
+                constantIndices.put("U" + value, index);
+            }
+            return index;
+        }
+
+        private int classConstant(String name) throws IOException {
+            Integer index = constantIndices.get("C" + name);
+            if (index == null) {
+                int nameIndex = utf8Constant(name);
+                constants.writeByte(CONSTANT_CLASS);
+                constants.writeShort(nameIndex);
+                index = numOfConstants++;
+                constantIndices.put("C" + name, index);
+            }
+            return index;
+        }
+
+        private int methodConstant(String owner, String name, String descriptor) throws IOException {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer index = constantIndices.get(key);
+            if (index == null) {
+                int ownerIndex = classConstant(owner);
+                int nameIndex = utf8Constant(name);
+                int descriptorIndex = utf8Constant(descriptor);
+                constants.writeByte(CONSTANT_NAME_AND_TYPE);
+                constants.writeShort(nameIndex);
+                constants.writeShort(descriptorIndex);
+                int nameAndType = numOfConstants++;
+                constants.writeByte(CONSTANT_METHODREF);
+                constants.writeShort(ownerIndex);
+                constants.writeShort(nameAndType);
+                index = numOfConstants++;
+                constantIndices.put(key, index);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package bgu.projects.dataanalysis.learntree.api;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class to hold the optional settings of a {@link DecisionTree} update (see {@link DecisionTree#update})
+ * The defaults are the usual settings of Hoeffding trees
+ * Setters return this object so settings can be chained
+ */
+@Getter
+public class UpdateOptions {
+
+    /**
+     * Minimal number of objects of a batch which must reach a leaf for it to be split
+     */
+    private int minSamples = 200;
+
+    /**
+     * Probability that the best split of a leaf's objects is not the best split of all the objects
+     * the leaf would see, which the Hoeffding bound of a split must not exceed
+     */
+    private double splitErrorProbability = 1e-7;
+
+    /**
+     * Difference of information gain (in nats per object) under which two splits are considered equally good,
+     * so a leaf is split by the best one once the Hoeffding bound is below it
+     * An infinite threshold splits leaves by their gain alone, up to the split budget
+     */
+    private double tieThreshold = 0.05;
+
+    /**
+     * Maximal number of splits an update grows
+     */
+    private int maxSplits = Integer.MAX_VALUE;
+
+    /**
+     * The pool in which split search runs, or null for an update on the calling thread only
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Function to return the default options
+     * @return new options object
+     */
+    public static UpdateOptions defaults() {
+        return new UpdateOptions();
+    }
+
+    /**
+     * Method to set the minimal number of objects of a batch which must reach a leaf for it to be split
+     * @param minSamples - number of objects, at least 1
+     * @return this options object
+     */
+    public UpdateOptions withMinSamples(int minSamples) {
+        if (minSamples < 1)
+            throw new IllegalArgumentException("Minimal number of samples: not a legal value");
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    /**
+     * Method to set the probability that a split is not the best split of all the objects its leaf would see
+     * @param splitErrorProbability - probability, greater than 0 and smaller than 1
+     * @return this options object
+     */
+    public UpdateOptions withSplitErrorProbability(double splitErrorProbability) {
+        if (!(splitErrorProbability > 0 && splitErrorProbability < 1))
+            throw new IllegalArgumentException("Split error probability: not a legal value");
+        this.splitErrorProbability = splitErrorProbability;
+        return this;
+    }
+
+    /**
+     * Method to set the difference of information gain under which two splits are considered equally good
+     * @param tieThreshold - difference in nats per object, 0 to split only by the Hoeffding bound,
+     *                     infinity to split by gain alone
+     * @return this options object
+     */
+    public UpdateOptions withTieThreshold(double tieThreshold) {
+        if (tieThreshold < 0)
+            throw new IllegalArgumentException("Tie threshold: not a legal value");
+        this.tieThreshold = tieThreshold;
+        return this;
+    }
+
+    /**
+     * Method to set the maximal number of splits an update grows
+     * @param maxSplits - number of splits, 0 to only update the statistics and the labels
+     * @return this options object
+     */
+    public UpdateOptions withMaxSplits(int maxSplits) {
+        if (maxSplits < 0)
+            throw new IllegalArgumentException("Maximal number of splits: not a legal value");
+        this.maxSplits = maxSplits;
+        return this;
+    }
+
+    /**
+     * Method to set the number of threads split search runs on
+     * Options of the same number of threads share a single pool, as in {@link TrainingOptions#withParallelism}
+     * @param threads - number of threads, 1 updates on the calling thread only
+     * @return this options object
+     */
+    public UpdateOptions withParallelism(int threads) {
+        this.pool = TrainingOptions.sharedPool(threads);
+        return this;
+    }
+
+    /**
+     * Method to return the settings of the split search of an update
+     * @return training options of the same pool
+     */
+    TrainingOptions getTrainingOptions() {
+        return pool == null ? TrainingOptions.defaults().withParallelism(1) : TrainingOptions.defaults().withPool(pool);
+    }
+}
@@ -0,0 +1,63 @@
+package bgu.projects.dataanalysis.predict;
+
+/**
+ * Class to count latencies in logarithmic buckets, so percentiles are estimated in constant memory
+ * Latencies below 64 microseconds are exact, larger latencies fall into one of 32 buckets per power of 2,
+ * so an estimated percentile is within about 3% of the real one
+ * The methods are synchronized, so latencies may be recorded and read by different threads
+ */
+class LatencyHistogram {
+
+    private static final int EXACT_MICROS = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int EXACT_BITS = 6;
+
+    private final long[] counts = new long[EXACT_MICROS + (Long.SIZE - EXACT_BITS) * (1 << SUB_BUCKET_BITS)];
+    private long total;
+
+    /**
+     * Method to count a latency
+     * @param nanos - the latency in nanoseconds
+     */
+    synchronized void record(long nanos) {
+        counts[bucketOf(Math.max(0, nanos / 1000))]++;
+        total++;
+    }
+
+    /**
+     * Function to estimate a percentile of the counted latencies
+     * @param percentile - a number between 0 and 100
+     * @return the latency in microseconds which is larger or equal to the given percentage of the latencies,
+     *         or 0 if no latency was counted
+     */
+    synchronized long percentile(double percentile) {
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && seen > 0)
+                return upperBoundOf(bucket);
+        }
+        return 0;
+    }
+
+    synchronized long count() {
+        return total;
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < EXACT_MICROS)
+            return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return EXACT_MICROS + ((exponent - EXACT_BITS) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < EXACT_MICROS)
+            return bucket;
+        int exponent = ((bucket - EXACT_MICROS) >> SUB_BUCKET_BITS) + EXACT_BITS;
+        long subBucket = (bucket - EXACT_MICROS) & ((1 << SUB_BUCKET_BITS) - 1);
+        return ((1L << SUB_BUCKET_BITS | subBucket) + 1 << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -1,39 +1,133 @@
 package bgu.projects.dataanalysis.predict;
 
+import bgu.projects.dataanalysis.common.DataSetChunkReader;
 import bgu.projects.dataanalysis.common.DecisionTreeFileReaderWriter;
-import bgu.projects.dataanalysis.common.MNISTCSVParser;
+import bgu.projects.dataanalysis.common.MNISTDataSetReader;
 import bgu.projects.dataanalysis.common.MNISTImage;
-import bgu.projects.dataanalysis.learntree.api.DataSet;
+import bgu.projects.dataanalysis.learntree.api.Classifier;
 import bgu.projects.dataanalysis.learntree.api.DataSetEntry;
-import bgu.projects.dataanalysis.learntree.api.DataSetImpl;
-import bgu.projects.dataanalysis.learntree.api.DecisionTree;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.text.ParseException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
+/**
+ * main class for predicting the labels of a test set by a decision tree or a random forest
+ * The test set is streamed in chunks: while a chunk is predicted and its labels are written,
+ * the next chunk is read, so the memory used does not depend on the test set size
+ * With --serve=<port> instead of a test set, runs a {@link PredictionServer} until it is killed,
+ * optionally with --max-delay=<microseconds> that a small batch waits for more requests
+ * With --generate-code, the model is predicted by code generated for it (see {@link Classifier#generateCode()})
+ */
 public class Main {
 
+    /**
+     * Maximal number of test set entries per chunk
+     */
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private static final String SERVE_OPTION = "--serve=";
+    private static final String MAX_DELAY_OPTION = "--max-delay=";
+    private static final String GENERATE_CODE_OPTION = "--generate-code";
+
     public static void main(String[] args) {
 
+        if (args.length > 1 && args[1].startsWith(SERVE_OPTION)) {
+            serve(args);
+            return;
+        }
         String treeFilename = args[0];
         String testSetFilename = args[1];
+        boolean generateCode = args.length > 2 && args[2].equals(GENERATE_CODE_OPTION);
 
-        //Read Tree from File
+        ExecutorService reader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "test-set-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //Read Model from File
         try {
-            DecisionTree<MNISTImage> returnedTree = DecisionTreeFileReaderWriter.read(treeFilename);
-            List<DataSetEntry<MNISTImage>> dataSetAsList = MNISTCSVParser.parseCSV(testSetFilename);
-            DataSet<MNISTImage> testDataSet = new DataSetImpl<>(dataSetAsList);
-            for (DataSetEntry<MNISTImage> entry : testDataSet) {
-                System.out.println(returnedTree.predict(entry.getObject()));
+            Classifier<MNISTImage> returnedTree = DecisionTreeFileReaderWriter.readModel(treeFilename);
+            if (generateCode && !returnedTree.generateCode())
+                System.err.println("Could not generate code for all of the model, the rest is interpreted");
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out), OUTPUT_BUFFER_SIZE);
+            try (DataSetChunkReader testSet = MNISTDataSetReader.open(testSetFilename, CHUNK_SIZE)) {
+                Future<List<DataSetEntry<MNISTImage>>> nextChunk = reader.submit(testSet::nextChunk);
+                List<DataSetEntry<MNISTImage>> chunk;
+                while ((chunk = nextChunk.get()) != null) {
+                    nextChunk = reader.submit(testSet::nextChunk);
+                    List<MNISTImage> images = chunk.stream()
+                            .map(DataSetEntry::getObject)
+                            .collect(Collectors.toList());
+                    for (String label : returnedTree.predictAll(images)) {
+                        out.write(String.valueOf(label));
+                        out.newLine();
+                    }
+                }
+            } finally {
+                out.flush();
             }
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
         } catch (IOException ioe) {
             ioe.printStackTrace();
         } catch (ParseException pe) {
             pe.printStackTrace();
+        } finally {
+            reader.shutdownNow();
         }
 
     }
+
+    /**
+     * Method to run a prediction server until the process is killed, and print its counters when it is
+     * @param args - the model file, --serve=<port> and optionally --max-delay=<microseconds> and --generate-code
+     */
+    private static void serve(String[] args) {
+        try {
+            int port = Integer.parseInt(args[1].substring(SERVE_OPTION.length()));
+            long maxDelayMicros = 0;
+            boolean generateCode = false;
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].startsWith(MAX_DELAY_OPTION))
+                    maxDelayMicros = Long.parseLong(args[i].substring(MAX_DELAY_OPTION.length()));
+                else if (args[i].equals(GENERATE_CODE_OPTION))
+                    generateCode = true;
+                else
+                    throw new NumberFormatException(args[i]);
+            }
+            PredictionServer server = new PredictionServer(args[0], port, maxDelayMicros * 1000, generateCode);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                System.err.println(server.stats());
+            }));
+            System.err.println("Serving '" + args[0] + "' on port " + server.getPort());
+            new CountDownLatch(1).await();
+        } catch (NumberFormatException e) {
+            System.err.println("usage: predict <model_filename> --serve=<port> [--max-delay=<microseconds>] " +
+                    "[--generate-code]");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClassNotFoundException | IOException e) {
+            e.printStackTrace();
+        }
+    }
 }
@@ -0,0 +1,172 @@
+package bgu.projects.dataanalysis.predict;
+
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.Classifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class to gather concurrent prediction requests into batches, which a single thread predicts together
+ * While a batch is predicted the next requests wait in a queue, and the thread takes all of them as the next batch,
+ * so under load batches grow by themselves and a lone request is not delayed
+ * A positive maximal delay makes the thread also wait for more requests before it predicts a small batch
+ * Every batch is predicted by the model which is current when the batch starts, so replacing the model
+ * does not affect requests already being predicted
+ */
+class MicroBatcher implements AutoCloseable {
+
+    /**
+     * Number of images from which a batch is predicted without waiting for more requests
+     */
+    private static final int MAX_BATCH_IMAGES = 1 << 12;
+
+    private final AtomicReference<Classifier<MNISTImage>> model;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final long startTime = System.nanoTime();
+    private long numOfImages;
+    private long numOfBatches;
+    private volatile boolean closed;
+
+    private static class Request {
+        final List<MNISTImage> images;
+        final CompletableFuture<String[]> labels = new CompletableFuture<>();
+        final long arrivalTime = System.nanoTime();
+
+        Request(List<MNISTImage> images) {
+            this.images = images;
+        }
+    }
+
+    /**
+     * Constructor, starts the batching thread
+     * @param model - reference to the current model, which may be replaced at any time
+     * @param maxDelayNanos - nanoseconds a batch smaller than the maximal size waits for more requests
+     */
+    MicroBatcher(AtomicReference<Classifier<MNISTImage>> model, long maxDelayNanos) {
+        this.model = model;
+        this.maxDelayNanos = maxDelayNanos;
+        this.thread = new Thread(this::run, "micro-batcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Function to queue images for prediction
+     * @param images - the images
+     * @return future of the labels of the images, in the images' order
+     */
+    synchronized CompletableFuture<String[]> submit(List<MNISTImage> images) {
+        Request request = new Request(images);
+        if (closed)
+            request.labels.completeExceptionally(new IllegalStateException("Server is shutting down"));
+        else
+            queue.add(request);
+        return request.labels;
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        List<MNISTImage> images = new ArrayList<>();
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                queue.drainTo(batch);
+                int size = 0;
+                for (Request request : batch)
+                    size += request.images.size();
+                long deadline = first.arrivalTime + maxDelayNanos;
+                while (size < MAX_BATCH_IMAGES && maxDelayNanos > 0) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                    size += next.images.size();
+                }
+                predict(batch, images);
+                batch.clear();
+                images.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Request request; (request = queue.poll()) != null; )
+            request.labels.completeExceptionally(new IllegalStateException("Server is shutting down"));
+    }
+
+    /**
+     * Method to predict a batch by the current model and complete its requests
+     * @param batch - the requests
+     * @param images - empty list to gather the images of the requests in
+     */
+    private void predict(List<Request> batch, List<MNISTImage> images) {
+        for (Request request : batch)
+            images.addAll(request.images);
+        try {
+            String[] labels = model.get().predictAll(images);
+            int offset = 0;
+            for (Request request : batch) {
+                String[] requestLabels = new String[request.images.size()];
+                System.arraycopy(labels, offset, requestLabels, 0, requestLabels.length);
+                offset += requestLabels.length;
+                request.labels.complete(requestLabels);
+            }
+        } catch (Throwable e) {
+            // errors of the model too (such as running out of memory) fail only the batch, so the thread
+            // goes on and no request is left waiting, the requests completed already are not affected
+            for (Request request : batch)
+                request.labels.completeExceptionally(e);
+            return;
+        }
+        long now = System.nanoTime();
+        for (Request request : batch)
+            latencies.record(now - request.arrivalTime);
+        synchronized (this) {
+            numOfImages += images.size();
+            numOfBatches++;
+        }
+    }
+
+    /**
+     * Function to describe the counters of the requests predicted so far
+     * @return a line of the number of requests, images and batches, the throughput,
+     *         and the p50 and p99 latencies from queueing a request to its labels
+     */
+    synchronized String stats() {
+        long requests = latencies.count();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return String.format(Locale.ROOT,
+                "requests %d, images %d, batches %d (%.1f images per batch), " +
+                        "%.1f requests/s, %.1f images/s, latency p50 %d us, p99 %d us",
+                requests, numOfImages, numOfBatches, numOfBatches == 0 ? 0.0 : (double) numOfImages / numOfBatches,
+                requests / seconds, numOfImages / seconds, latencies.percentile(50), latencies.percentile(99));
+    }
+
+    /**
+     * Method to stop accepting requests, and wait for the queued requests to be predicted
+     * If the waiting thread is interrupted it stops waiting, and its interrupt status is set
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package bgu.projects.dataanalysis.predict;
+
+import bgu.projects.dataanalysis.common.MNISTImage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Class of a connection to a {@link PredictionServer}
+ * A client sends one request at a time, and is not thread safe: concurrent callers should each have their own
+ */
+public class PredictionClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Constructor, connects to a server on the loopback interface
+     * @param port - the port the server listens on
+     * @throws IOException
+     */
+    public PredictionClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * This method predicts the labels of a batch of images by the server's model
+     * @param images - the images, at most {@link PredictionProtocol#MAX_IMAGES_PER_REQUEST}
+     * @return array of the labels matching the images, in the images' order, null for an image with no label
+     * @throws IOException - if the connection failed or the server answered with an error
+     */
+    public String[] predictAll(List<MNISTImage> images) throws IOException {
+        if (images.size() > PredictionProtocol.MAX_IMAGES_PER_REQUEST)
+            throw new IllegalArgumentException("PredictionClient: too many images");
+        out.writeByte(PredictionProtocol.PREDICT);
+        out.writeInt(images.size());
+        for (MNISTImage image : images)
+            for (int p = 0; p < MNISTImage.SIZE; p++)
+                out.writeByte(image.getPixel(p));
+        out.flush();
+        checkStatus();
+        String[] labels = new String[in.readInt()];
+        for (int i = 0; i < labels.length; i++) {
+            String label = in.readUTF();
+            labels[i] = label.isEmpty() ? null : label;
+        }
+        return labels;
+    }
+
+    /**
+     * Function to return the server's counters, see {@link PredictionServer#stats()}
+     * @return the counters line
+     * @throws IOException
+     */
+    public String stats() throws IOException {
+        return call(PredictionProtocol.STATS);
+    }
+
+    /**
+     * Method to make the server reload its model file
+     * @return the model file
+     * @throws IOException - if the connection failed or the model could not be reloaded
+     */
+    public String reload() throws IOException {
+        return call(PredictionProtocol.RELOAD);
+    }
+
+    private String call(byte operation) throws IOException {
+        out.writeByte(operation);
+        out.flush();
+        checkStatus();
+        return in.readUTF();
+    }
+
+    private void checkStatus() throws IOException {
+        if (in.readByte() != PredictionProtocol.OK)
+            throw new IOException("Prediction server: " + in.readUTF());
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,30 @@
+package bgu.projects.dataanalysis.predict;
+
+/**
+ * Constants of the binary framing spoken by {@link PredictionServer} and {@link PredictionClient}
+ * All numbers are big endian, as written by {@link java.io.DataOutputStream}, and strings are modified UTF-8
+ * A request is an operation byte followed by its body:
+ * PREDICT - int number of images n, then n * {@link bgu.projects.dataanalysis.common.MNISTImage#SIZE} pixel bytes
+ * STATS, RELOAD - no body
+ * A response is a status byte followed by its body:
+ * OK to PREDICT - int number of labels n, then n labels as strings, an empty string for no label
+ * OK to STATS, OK to RELOAD, ERROR - a single string, of the statistics, the model file or the error message
+ * The responses of a connection are sent in the order of its requests
+ */
+public final class PredictionProtocol {
+
+    public static final byte PREDICT = 1;
+    public static final byte STATS = 2;
+    public static final byte RELOAD = 3;
+
+    public static final byte OK = 0;
+    public static final byte ERROR = 1;
+
+    /**
+     * Maximal number of images of a single request
+     */
+    public static final int MAX_IMAGES_PER_REQUEST = 1 << 16;
+
+    private PredictionProtocol() {
+    }
+}
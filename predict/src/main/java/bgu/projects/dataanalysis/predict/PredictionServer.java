@@ -0,0 +1,258 @@
+package bgu.projects.dataanalysis.predict;
+
+import bgu.projects.dataanalysis.common.DecisionTreeFileReaderWriter;
+import bgu.projects.dataanalysis.common.MNISTImage;
+import bgu.projects.dataanalysis.learntree.api.Classifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class of a resident prediction server, which keeps a model in memory and predicts the images sent to it
+ * over TCP connections on the loopback interface, in the framing of {@link PredictionProtocol}
+ * Every connection is served by its own thread, and the requests of all connections are predicted
+ * in batches by a {@link MicroBatcher}
+ * The model is reloaded when its file changes, or on a RELOAD request. The new model is read aside and
+ * replaces the old one atomically, so requests are never dropped, and if it can not be read the old model stays.
+ * To avoid reading a partly written file, write the new model to another file and rename it over the model file
+ */
+public class PredictionServer implements Closeable {
+
+    private static final long RELOAD_CHECK_INTERVAL_MILLIS = 1000;
+
+    private final Path modelFile;
+    private final boolean generateCode;
+    private final AtomicReference<Classifier<MNISTImage>> model = new AtomicReference<>();
+    private final MicroBatcher batcher;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "prediction-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "model-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Modification times of the current model's file and of the last file which could not be read
+     */
+    private FileTime modelTime;
+    private FileTime failedTime;
+
+    /**
+     * Constructor, loads the model and starts listening
+     * @param modelFilename - the file of the model, as written by {@link DecisionTreeFileReaderWriter}
+     * @param port - the port to listen on, or 0 for any free port
+     * @param maxDelayNanos - nanoseconds a small batch waits for more requests, see {@link MicroBatcher}
+     * @param generateCode - whether every loaded model is predicted by generated code,
+     *                     see {@link Classifier#generateCode()}
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public PredictionServer(String modelFilename, int port, long maxDelayNanos, boolean generateCode)
+            throws IOException, ClassNotFoundException {
+        this.modelFile = Paths.get(modelFilename);
+        this.generateCode = generateCode;
+        reload();
+        this.batcher = new MicroBatcher(model, maxDelayNanos);
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "prediction-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        reloader.scheduleWithFixedDelay(this::reloadIfChanged, RELOAD_CHECK_INTERVAL_MILLIS,
+                RELOAD_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Method to return the port the server listens on
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Method to read the model file and make it the current model
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public synchronized void reload() throws IOException, ClassNotFoundException {
+        FileTime time = Files.getLastModifiedTime(modelFile);
+        Classifier<MNISTImage> newModel = DecisionTreeFileReaderWriter.readModel(modelFile.toString());
+        // the code is generated before the model is current, so no request waits for it
+        if (generateCode && !newModel.generateCode())
+            System.err.println("Could not generate code for all of model '" + modelFile + "', the rest is interpreted");
+        model.set(newModel);
+        modelTime = time;
+    }
+
+    private synchronized void reloadIfChanged() {
+        FileTime time = null;
+        try {
+            time = Files.getLastModifiedTime(modelFile);
+            if (!time.equals(modelTime) && !time.equals(failedTime)) {
+                reload();
+                System.err.println("Reloaded model '" + modelFile + "'");
+            }
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            // the file is read again once it changes again
+            failedTime = time;
+            System.err.println("Could not reload model '" + modelFile + "': " + e);
+        }
+    }
+
+    /**
+     * Function to describe the counters of the requests predicted so far, see {@link MicroBatcher#stats()}
+     * @return the counters line
+     */
+    public String stats() {
+        return batcher.stats();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed())
+                e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method to answer the requests of a connection until it is closed
+     * @param socket - the connection
+     */
+    private void serve(Socket socket) {
+        try (Socket connection = socket) {
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            while (true) {
+                byte operation;
+                try {
+                    operation = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                switch (operation) {
+                    case PredictionProtocol.PREDICT:
+                        predict(in, out);
+                        break;
+                    case PredictionProtocol.STATS:
+                        out.writeByte(PredictionProtocol.OK);
+                        out.writeUTF(stats());
+                        break;
+                    case PredictionProtocol.RELOAD:
+                        try {
+                            reload();
+                            out.writeByte(PredictionProtocol.OK);
+                            out.writeUTF(modelFile.toString());
+                        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                            writeError(out, "Could not reload model: " + e);
+                        }
+                        break;
+                    default:
+                        // the rest of the stream can not be framed
+                        writeError(out, "Unknown operation " + operation);
+                        out.flush();
+                        return;
+                }
+                out.flush();
+            }
+        } catch (SocketException | EOFException e) {
+            // the client disconnected
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void predict(DataInputStream in, DataOutputStream out) throws IOException, InterruptedException {
+        int count = in.readInt();
+        if (count < 0 || count > PredictionProtocol.MAX_IMAGES_PER_REQUEST) {
+            // the pixels of a request which is too large are skipped, so the next request is framed
+            skipFully(in, Math.max(0, count) * (long) MNISTImage.SIZE);
+            writeError(out, "Illegal number of images: " + count);
+            return;
+        }
+        byte[] pixels = new byte[count * MNISTImage.SIZE];
+        in.readFully(pixels);
+        List<MNISTImage> images = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            images.add(new MNISTImage(pixels, i * MNISTImage.SIZE));
+        String[] labels;
+        try {
+            labels = batcher.submit(images).get();
+        } catch (ExecutionException e) {
+            writeError(out, String.valueOf(e.getCause()));
+            return;
+        }
+        out.writeByte(PredictionProtocol.OK);
+        out.writeInt(labels.length);
+        for (String label : labels)
+            out.writeUTF(label == null ? "" : label);
+    }
+
+    /**
+     * Method to skip a number of bytes of a stream
+     * @param in - the stream
+     * @param numOfBytes - number of bytes to skip
+     * @throws EOFException if the stream ends before
+     */
+    private static void skipFully(DataInputStream in, long numOfBytes) throws IOException {
+        while (numOfBytes > 0) {
+            long skipped = in.skip(numOfBytes);
+            if (skipped == 0) {
+                // skip does not tell the end of the stream
+                if (in.read() < 0)
+                    throw new EOFException();
+                skipped = 1;
+            }
+            numOfBytes -= skipped;
+        }
+    }
+
+    private static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeByte(PredictionProtocol.ERROR);
+        out.writeUTF(message);
+    }
+
+    /**
+     * Method to stop listening, and wait for the queued requests to be predicted
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        reloader.shutdownNow();
+        batcher.close();
+        connections.shutdown();
+    }
+}